@@ -0,0 +1,69 @@
+package me.gommeantilegit.sonopy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the dct of the log mel energies of one frame
+ *
+ * @author GommeAntiLegit
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DCTBenchmark {
+
+    @Param({"40", "64", "80"})
+    public int numFilters;
+
+    @Param({"13", "20", "40"})
+    public int numCoeffs;
+
+    private float[] mels, mfccs;
+
+    private DCTTransform direct, fast, basis;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        mels = new float[numFilters];
+        for (int i = 0; i < mels.length; i++) {
+            mels[i] = (float) random.nextGaussian();
+        }
+        mfccs = new float[numCoeffs];
+        direct = DCT.Method.DIRECT.create(numFilters, numCoeffs, true);
+        fast = DCT.Method.FAST.create(numFilters, numCoeffs, true);
+        basis = DCT.Method.BASIS.create(numFilters, numCoeffs, true);
+    }
+
+    /**
+     * Full transform as used by mfccSpec before the coefficients were truncated in the transform
+     */
+    @Benchmark
+    public float[] dct() {
+        return DCT.dct(mels, true);
+    }
+
+    @Benchmark
+    public float[] direct() {
+        direct.dct(mels, 0, mfccs, 0);
+        return mfccs;
+    }
+
+    @Benchmark
+    public float[] fast() {
+        fast.dct(mels, 0, mfccs, 0);
+        return mfccs;
+    }
+
+    @Benchmark
+    public float[] basis() {
+        basis.dct(mels, 0, mfccs, 0);
+        return mfccs;
+    }
+}
@@ -0,0 +1,73 @@
+package me.gommeantilegit.sonopy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a single real fft of one frame
+ *
+ * @author GommeAntiLegit
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FFTBenchmark {
+
+    @Param({"256", "400", "480", "512", "1024"})
+    public int fftSize;
+
+    private float[] signal;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        signal = new float[fftSize];
+        for (int i = 0; i < signal.length; i++) {
+            signal[i] = (float) random.nextGaussian();
+        }
+    }
+
+    /**
+     * Builds a radix-2 plan per call and allocates the output. Takes no {@link Plan}, so it runs once per size
+     * instead of once per algorithm
+     */
+    @Benchmark
+    public float[][] rfft() {
+        return FFT.rfft(signal, fftSize);
+    }
+
+    /**
+     * Reused plan and output buffers, as used per frame by {@link Sonopy}
+     */
+    @Benchmark
+    public float[] planRfft(Plan plan) {
+        plan.plan.rfft(signal, 0, fftSize, plan.real, plan.imag);
+        return plan.real;
+    }
+
+    /**
+     * Plan of each algorithm with its output buffers
+     */
+    @State(Scope.Thread)
+    public static class Plan {
+
+        @Param({"RADIX_2", "RADIX_4"})
+        public FFTPlan.Algorithm algorithm;
+
+        private float[] real, imag;
+
+        private FFTPlan plan;
+
+        @Setup
+        public void setup(FFTBenchmark benchmark) {
+            plan = new FFTPlan(benchmark.fftSize, algorithm);
+            real = new float[benchmark.fftSize / 2 + 1];
+            imag = new float[benchmark.fftSize / 2 + 1];
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package me.gommeantilegit.sonopy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of projecting the power spectra of a clip onto the mel filters
+ *
+ * @author GommeAntiLegit
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterbankBenchmark {
+
+    @Param({"512"})
+    public int fftSize;
+
+    @Param({"20", "40", "80"})
+    public int numFilters;
+
+    @Param({"100"})
+    public int numFrames;
+
+    private float[][] powers, banks, mels;
+
+    private MelFilterbank filterbank;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        powers = new float[numFrames][fftSize / 2 + 1];
+        for (float[] power : powers) {
+            for (int j = 0; j < power.length; j++) {
+                power[j] = random.nextFloat();
+            }
+        }
+        banks = Sonopy.filterbanks(16000, numFilters, fftSize / 2 + 1);
+        filterbank = MelFilterbank.sparse(banks);
+        mels = new float[numFrames][numFilters];
+    }
+
+    /**
+     * Dense product with the transposed filterbank matrix
+     */
+    @Benchmark
+    public float[][] dense() {
+        return Sonopy.dot(powers, Sonopy.transpose(banks));
+    }
+
+    @Benchmark
+    public float[][] sparse() {
+        for (int i = 0; i < numFrames; i++) {
+            filterbank.apply(powers[i], 0, mels[i], 0);
+        }
+        return mels;
+    }
+}
@@ -0,0 +1,61 @@
+package me.gommeantilegit.sonopy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the logarithm of the mel energies of one frame with each {@link LogMethod}.
+ * The logarithm works in place, so every invocation first copies the energies, which all methods pay alike.
+ *
+ * @author GommeAntiLegit
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogBenchmark {
+
+    @Param({"EXACT", "FAST", "FASTER"})
+    public LogMethod method;
+
+    @Param({"26", "40", "80"})
+    public int numFilters;
+
+    private float[] energies, logs;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        energies = new float[numFilters];
+        for (int i = 0; i < energies.length; i++) {
+            // mel energies span many orders of magnitude
+            energies[i] = (float) Math.exp(random.nextGaussian() * 5);
+        }
+        logs = new float[numFilters];
+    }
+
+    /**
+     * Array kernel as used by the frame pipeline, vectorized on Java 17+
+     */
+    @Benchmark
+    public float[] log() {
+        System.arraycopy(energies, 0, logs, 0, numFilters);
+        method.log(logs, 0, numFilters);
+        return logs;
+    }
+
+    /**
+     * One value at a time as used for the frame energy
+     */
+    @Benchmark
+    public float[] scalarLog() {
+        for (int i = 0; i < numFilters; i++) {
+            logs[i] = method.log(energies[i]);
+        }
+        return logs;
+    }
+}
@@ -0,0 +1,77 @@
+package me.gommeantilegit.sonopy;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end feature extraction of a clip with 25 ms frames every 10 ms, split into the cost
+ * of the power, mel and mfcc spectrogram. Sweeps fft sizes around the frame of 400 samples,
+ * which 256 points truncate and 512 and 1024 points zero pad, and the number of coefficients.
+ *
+ * @author GommeAntiLegit
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MfccBenchmark {
+
+    private static final int SAMPLE_RATE = 16000;
+    private static final int WINDOW_SIZE = 400;
+    private static final int WINDOW_HOP = 160;
+
+    @Param({"1", "10"})
+    public int clipSeconds;
+
+    @Param({"256", "400", "512", "1024"})
+    public int fftSize;
+
+    @Param({"40"})
+    public int numFilters;
+
+    @Param({"13", "20", "40"})
+    public int numCoeffs;
+
+    private float[] audio, mfccs;
+
+    private Sonopy sonopy;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(0);
+        audio = new float[clipSeconds * SAMPLE_RATE];
+        for (int i = 0; i < audio.length; i++) {
+            audio[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        sonopy = new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, fftSize, numFilters);
+        mfccs = new float[sonopy.numFrames(audio.length) * numCoeffs];
+    }
+
+    @Benchmark
+    public float[][] powerSpec() {
+        return Sonopy.powerSpec(audio, WINDOW_SIZE, WINDOW_HOP, fftSize);
+    }
+
+    @Benchmark
+    public float[][] melSpec() {
+        return sonopy.melSpec(audio);
+    }
+
+    @Benchmark
+    public float[][] mfccSpec() {
+        return sonopy.mfccSpec(audio, numCoeffs);
+    }
+
+    /**
+     * Allocation free extraction into a reused buffer
+     */
+    @Benchmark
+    public float[] mfccSpecInto() {
+        sonopy.mfccSpec(audio, numCoeffs, mfccs, 0, numCoeffs);
+        return mfccs;
+    }
+}
@@ -0,0 +1,86 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+
+/**
+ * Sample formats of raw audio in a {@link ByteBuffer}.
+ * Integer samples are normalized to [-1, 1) like mycroft-precise does (e.g. x / 32768 for 16 bit samples).
+ *
+ * @author GommeAntiLegit
+ * @see Sonopy#mfccSpec(ByteBuffer, AudioEncoding, int, float[], int, int)
+ */
+public enum AudioEncoding {
+
+    PCM_16_LE(2, false, ByteOrder.LITTLE_ENDIAN),
+    PCM_16_BE(2, false, ByteOrder.BIG_ENDIAN),
+    PCM_32_LE(4, false, ByteOrder.LITTLE_ENDIAN),
+    PCM_32_BE(4, false, ByteOrder.BIG_ENDIAN),
+    FLOAT_32_LE(4, true, ByteOrder.LITTLE_ENDIAN),
+    FLOAT_32_BE(4, true, ByteOrder.BIG_ENDIAN);
+
+    private final int bytesPerSample;
+
+    private final boolean floatingPoint;
+
+    @NotNull
+    private final ByteOrder order;
+
+    AudioEncoding(int bytesPerSample, boolean floatingPoint, @NotNull ByteOrder order) {
+        this.bytesPerSample = bytesPerSample;
+        this.floatingPoint = floatingPoint;
+        this.order = order;
+    }
+
+    /**
+     * @return number of bytes of a sample
+     */
+    public int bytesPerSample() {
+        return bytesPerSample;
+    }
+
+    /**
+     * @return byte order of a sample
+     */
+    @NotNull
+    public ByteOrder order() {
+        return order;
+    }
+
+    /**
+     * Normalizes numSamples samples starting at audio[byteIndex] into out[outOffset + n].
+     * Uses absolute gets only and swaps the bytes if the order of audio differs from the order of this encoding,
+     * so neither the buffer nor a view of it is modified and a buffer can be shared between threads.
+     */
+    void decode(@NotNull ByteBuffer audio, int byteIndex, @NotNull float[] out, int outOffset, int numSamples) {
+        boolean swap = audio.order() != order;
+        if (floatingPoint) {
+            for (int n = 0; n < numSamples; n++) {
+                int bits = audio.getInt(byteIndex + 4 * n);
+                out[outOffset + n] = Float.intBitsToFloat(swap ? Integer.reverseBytes(bits) : bits);
+            }
+        } else if (bytesPerSample == 2) {
+            for (int n = 0; n < numSamples; n++) {
+                short sample = audio.getShort(byteIndex + 2 * n);
+                out[outOffset + n] = (swap ? Short.reverseBytes(sample) : sample) / 32768f;
+            }
+        } else {
+            for (int n = 0; n < numSamples; n++) {
+                int sample = audio.getInt(byteIndex + 4 * n);
+                out[outOffset + n] = (swap ? Integer.reverseBytes(sample) : sample) / 2147483648f;
+            }
+        }
+    }
+
+    /**
+     * Normalizes numSamples 16 bit samples starting at index into out[outOffset + n]
+     */
+    static void decode(@NotNull ShortBuffer audio, int index, @NotNull float[] out, int outOffset, int numSamples) {
+        for (int n = 0; n < numSamples; n++) {
+            out[outOffset + n] = audio.get(index + n) / 32768f;
+        }
+    }
+}
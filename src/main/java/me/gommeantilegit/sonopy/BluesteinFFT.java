@@ -0,0 +1,107 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+
+/**
+ * Transform of an arbitrary number of points N as a convolution (Bluestein's algorithm).
+ * With the chirp w[n] = exp(-i * pi * n^2 / N) the DFT is
+ * <pre>
+ * X[k] = w[k] * sum(x[n] * w[n] * conj(w[k - n]), 0 <= n < N)
+ * </pre>
+ * which is computed as a cyclic convolution with power of two {@link FFTPlan} transforms of M >= 2N - 1 points.
+ * The transform of the chirp is precomputed, so a transform costs two M point transforms.<br>
+ * The convolution is computed in place, so the arrays passed to {@link #transform(float[], float[])} need M elements.
+ *
+ * @author GommeAntiLegit
+ */
+final class BluesteinFFT implements ComplexFFT {
+
+    private final int numPoints;
+
+    /**
+     * Power of two transform of the convolution
+     */
+    @NotNull
+    private final FFTPlan plan;
+
+    /**
+     * The chirp w[n], 0 <= n < numPoints
+     */
+    @NotNull
+    private final float[] chirpReal, chirpImag;
+
+    /**
+     * Transform of conj(w[n]) wrapped around to a cyclic sequence of M points, divided by M for the inverse transform
+     */
+    @NotNull
+    private final float[] filterReal, filterImag;
+
+    BluesteinFFT(int numPoints) {
+        if (numPoints < 1)
+            throw new IllegalArgumentException("numPoints must be positive, got " + numPoints);
+        this.numPoints = numPoints;
+        int convolutionSize = Integer.highestOneBit(2 * numPoints - 1);
+        if (convolutionSize < 2 * numPoints - 1)
+            convolutionSize <<= 1;
+        this.plan = TableCache.fftPlan(convolutionSize, FFTPlan.Algorithm.RADIX_4);
+        this.chirpReal = new float[numPoints];
+        this.chirpImag = new float[numPoints];
+        for (int n = 0; n < numPoints; n++) {
+            // n^2 mod 2N keeps the angle exact for large n
+            double angle = Math.PI * ((long) n * n % (2L * numPoints)) / numPoints;
+            chirpReal[n] = (float) Math.cos(angle);
+            chirpImag[n] = (float) -Math.sin(angle);
+        }
+        this.filterReal = new float[convolutionSize];
+        this.filterImag = new float[convolutionSize];
+        float scale = 1f / convolutionSize;
+        for (int n = 0; n < numPoints; n++) {
+            filterReal[n] = chirpReal[n] * scale;
+            filterImag[n] = -chirpImag[n] * scale;
+            if (n > 0) {
+                filterReal[convolutionSize - n] = filterReal[n];
+                filterImag[convolutionSize - n] = filterImag[n];
+            }
+        }
+        plan.transform(filterReal, filterImag);
+    }
+
+    @Override
+    public int size() {
+        return numPoints;
+    }
+
+    @Override
+    public int workSize() {
+        return plan.size();
+    }
+
+    @Override
+    public void transform(@NotNull float[] real, @NotNull float[] imag) {
+        final int convolutionSize = plan.size();
+        final float[] chirpReal = this.chirpReal, chirpImag = this.chirpImag;
+        for (int n = 0; n < numPoints; n++) {
+            float x = real[n], y = imag[n];
+            real[n] = x * chirpReal[n] - y * chirpImag[n];
+            imag[n] = x * chirpImag[n] + y * chirpReal[n];
+        }
+        Arrays.fill(real, numPoints, convolutionSize, 0);
+        Arrays.fill(imag, numPoints, convolutionSize, 0);
+        plan.transform(real, imag);
+        // the inverse transform is the conjugate of the forward transform of the conjugate
+        for (int k = 0; k < convolutionSize; k++) {
+            float productReal = real[k] * filterReal[k] - imag[k] * filterImag[k];
+            float productImag = real[k] * filterImag[k] + imag[k] * filterReal[k];
+            real[k] = productReal;
+            imag[k] = -productImag;
+        }
+        plan.transform(real, imag);
+        for (int k = 0; k < numPoints; k++) {
+            float convolutionReal = real[k], convolutionImag = -imag[k];
+            real[k] = convolutionReal * chirpReal[k] - convolutionImag * chirpImag[k];
+            imag[k] = convolutionReal * chirpImag[k] + convolutionImag * chirpReal[k];
+        }
+    }
+}
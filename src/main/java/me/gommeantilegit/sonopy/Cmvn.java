@@ -0,0 +1,570 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.FloatBuffer;
+import java.util.Arrays;
+
+/**
+ * Cepstral mean and variance normalization: every coefficient k of a frame is replaced by (x[k] - mean[k]) / std[k]
+ * (or x[k] - mean[k] if the variance is not normalized) in place.
+ * The statistics are either fixed ({@link Mode#GLOBAL}), those of the whole utterance ({@link Mode#UTTERANCE})
+ * or those of the frames in a sliding window ending at the normalized frame ({@link Mode#SLIDING}).
+ * All modes update their statistics in O(numCoeffs) per frame and normalize in place without allocations,
+ * apart from the window of a sliding normalization. Instances are immutable.
+ *
+ * @author GommeAntiLegit
+ * @see Sonopy#setCmvn(Cmvn)
+ */
+public final class Cmvn {
+
+    /**
+     * Variances are clamped to at least this value, so constant coefficients do not explode
+     */
+    private static final double VARIANCE_FLOOR = 1e-10;
+
+    public enum Mode {
+
+        /**
+         * Fixed statistics, e.g. of the training data (see {@link Stats})
+         */
+        GLOBAL,
+
+        /**
+         * Statistics of all frames of the utterance. Needs all frames before the first one is normalized,
+         * so it is not available for streams.
+         */
+        UTTERANCE,
+
+        /**
+         * Statistics of the last window frames up to and including the normalized frame (all frames at the start).
+         * Causal, so streams produce the same output.
+         */
+        SLIDING
+    }
+
+    @NotNull
+    private final Mode mode;
+
+    private final boolean normalizeVariance;
+
+    /**
+     * Number of frames of the {@link Mode#SLIDING} window
+     */
+    private final int window;
+
+    /**
+     * Fixed mean and 1 / std of the {@link Mode#GLOBAL} mode
+     */
+    @Nullable
+    private final float[] mean, scale;
+
+    private Cmvn(@NotNull Mode mode, boolean normalizeVariance, int window, @Nullable float[] mean, @Nullable float[] scale) {
+        this.mode = mode;
+        this.normalizeVariance = normalizeVariance;
+        this.window = window;
+        this.mean = mean;
+        this.scale = scale;
+    }
+
+    /**
+     * Normalization with fixed statistics
+     *
+     * @param mean mean of each coefficient
+     * @param variance variance of each coefficient, or null to normalize the mean only
+     */
+    @NotNull
+    public static Cmvn global(@NotNull float[] mean, @Nullable float[] variance) {
+        if (variance != null && variance.length != mean.length)
+            throw new IllegalArgumentException("mean and variance differ in length: " + mean.length + " != " + variance.length);
+        float[] scale = new float[mean.length];
+        for (int k = 0; k < scale.length; k++) {
+            scale[k] = variance == null ? 1 : scale(variance[k]);
+        }
+        return new Cmvn(Mode.GLOBAL, variance != null, 0, mean.clone(), scale);
+    }
+
+    /**
+     * Normalization with the statistics of the whole utterance
+     */
+    @NotNull
+    public static Cmvn utterance(boolean normalizeVariance) {
+        return new Cmvn(Mode.UTTERANCE, normalizeVariance, 0, null, null);
+    }
+
+    /**
+     * Normalization with the statistics of the last window frames (Kaldi's apply-cmvn-sliding without centering)
+     *
+     * @param window number of frames, e.g. 300 (3 seconds with a hop of 10 ms)
+     */
+    @NotNull
+    public static Cmvn sliding(int window, boolean normalizeVariance) {
+        if (window < 1)
+            throw new IllegalArgumentException("window must be positive, got " + window);
+        return new Cmvn(Mode.SLIDING, normalizeVariance, window, null, null);
+    }
+
+    private static float scale(double variance) {
+        return (float) (1 / Math.sqrt(Math.max(variance, VARIANCE_FLOOR)));
+    }
+
+    @NotNull
+    public Mode mode() {
+        return mode;
+    }
+
+    public boolean normalizesVariance() {
+        return normalizeVariance;
+    }
+
+    /**
+     * @return the number of frames of the sliding window, 0 for the other modes
+     */
+    public int window() {
+        return window;
+    }
+
+    /**
+     * Normalizes numFrames rows in place. Row t starts at data[offset + t * stride], only its first numCoeffs values are normalized.
+     */
+    public void apply(@NotNull float[] data, int offset, int numFrames, int numCoeffs, int stride) {
+        apply(data, offset, numFrames, numCoeffs, stride, null);
+    }
+
+    /**
+     * {@link #apply(float[], int, int, int, int)} that reuses the window of a sliding normalization
+     *
+     * @param sliding a {@link #normalizer(int) normalizer} of this sliding normalization for numCoeffs, which is reset first,
+     *                or null to create one
+     */
+    void apply(@NotNull float[] data, int offset, int numFrames, int numCoeffs, int stride, @Nullable Normalizer sliding) {
+        if (stride < numCoeffs)
+            throw new IllegalArgumentException("stride " + stride + " is smaller than the number of coefficients " + numCoeffs);
+        if (numFrames > 0 && (offset < 0 || offset + (long) (numFrames - 1) * stride + numCoeffs > data.length))
+            throw new IllegalArgumentException("Buffer too small for " + numFrames + " rows of " + numCoeffs + " values");
+        apply(FLAT, data, offset, stride, numFrames, numCoeffs, sliding);
+    }
+
+    /**
+     * Normalizes the first numCoeffs values of numFrames rows in place
+     *
+     * @see #apply(float[], int, int, int, int)
+     */
+    public void apply(@NotNull float[][] rows, int numFrames, int numCoeffs) {
+        apply(rows, numFrames, numCoeffs, null);
+    }
+
+    /**
+     * {@link #apply(float[][], int, int)} that reuses the window of a sliding normalization
+     *
+     * @see #apply(float[], int, int, int, int, Normalizer)
+     */
+    void apply(@NotNull float[][] rows, int numFrames, int numCoeffs, @Nullable Normalizer sliding) {
+        apply(JAGGED, rows, 0, 0, numFrames, numCoeffs, sliding);
+    }
+
+    /**
+     * Normalizes numFrames rows of numCoeffs values starting at data[index] in place, without touching the position of data
+     *
+     * @see #apply(float[], int, int, int, int)
+     */
+    public void apply(@NotNull FloatBuffer data, int index, int numFrames, int numCoeffs) {
+        apply(data, index, numFrames, numCoeffs, null);
+    }
+
+    /**
+     * {@link #apply(FloatBuffer, int, int, int)} that reuses the window of a sliding normalization
+     *
+     * @see #apply(float[], int, int, int, int, Normalizer)
+     */
+    void apply(@NotNull FloatBuffer data, int index, int numFrames, int numCoeffs, @Nullable Normalizer sliding) {
+        apply(BUFFER, data, index, numCoeffs, numFrames, numCoeffs, sliding);
+    }
+
+    /**
+     * Normalizes the first numCoeffs values of numFrames rows of data in place, which are accessed through rows
+     */
+    private <D> void apply(@NotNull Rows<D> rows, @NotNull D data, int offset, int stride, int numFrames, int numCoeffs, @Nullable Normalizer sliding) {
+        switch (mode) {
+            case GLOBAL: {
+                float[] mean = globalMean(numCoeffs), scale = this.scale;
+                assert scale != null;
+                for (int t = 0; t < numFrames; t++) {
+                    for (int k = 0; k < numCoeffs; k++) {
+                        rows.set(data, offset, stride, t, k, (rows.get(data, offset, stride, t, k) - mean[k]) * scale[k]);
+                    }
+                }
+                break;
+            }
+            case UTTERANCE:
+                for (int k = 0; k < numCoeffs; k++) {
+                    // two passes over the coefficient are more accurate than the running sums of the sliding window
+                    double sum = 0;
+                    for (int t = 0; t < numFrames; t++) {
+                        sum += rows.get(data, offset, stride, t, k);
+                    }
+                    float mean = (float) (sum / numFrames), scale = 1;
+                    if (normalizeVariance) {
+                        double sumOfSquares = 0;
+                        for (int t = 0; t < numFrames; t++) {
+                            double deviation = rows.get(data, offset, stride, t, k) - mean;
+                            sumOfSquares += deviation * deviation;
+                        }
+                        scale = scale(sumOfSquares / numFrames);
+                    }
+                    for (int t = 0; t < numFrames; t++) {
+                        rows.set(data, offset, stride, t, k, (rows.get(data, offset, stride, t, k) - mean) * scale);
+                    }
+                }
+                break;
+            default: {
+                Normalizer normalizer = slidingNormalizer(numCoeffs, sliding);
+                for (int t = 0; t < numFrames; t++) {
+                    rows.normalize(normalizer, data, offset, stride, t);
+                }
+            }
+        }
+    }
+
+    /**
+     * Access to value k of row t of the rows of a buffer type. Row t starts at offset + t * stride of flat buffers.
+     * The implementations are stateless singletons, so applying a normalization does not allocate a view of the rows.
+     *
+     * @param <D> the buffer type
+     */
+    private interface Rows<D> {
+
+        float get(@NotNull D data, int offset, int stride, int t, int k);
+
+        void set(@NotNull D data, int offset, int stride, int t, int k, float value);
+
+        /**
+         * Normalizes row t as the next frame of normalizer
+         */
+        void normalize(@NotNull Normalizer normalizer, @NotNull D data, int offset, int stride, int t);
+    }
+
+    private static final Rows<float[]> FLAT = new Rows<float[]>() {
+        @Override
+        public float get(@NotNull float[] data, int offset, int stride, int t, int k) {
+            return data[offset + t * stride + k];
+        }
+
+        @Override
+        public void set(@NotNull float[] data, int offset, int stride, int t, int k, float value) {
+            data[offset + t * stride + k] = value;
+        }
+
+        @Override
+        public void normalize(@NotNull Normalizer normalizer, @NotNull float[] data, int offset, int stride, int t) {
+            normalizer.normalize(data, offset + t * stride);
+        }
+    };
+
+    /**
+     * Rows of a float[][], offset and stride are ignored
+     */
+    private static final Rows<float[][]> JAGGED = new Rows<float[][]>() {
+        @Override
+        public float get(@NotNull float[][] data, int offset, int stride, int t, int k) {
+            return data[t][k];
+        }
+
+        @Override
+        public void set(@NotNull float[][] data, int offset, int stride, int t, int k, float value) {
+            data[t][k] = value;
+        }
+
+        @Override
+        public void normalize(@NotNull Normalizer normalizer, @NotNull float[][] data, int offset, int stride, int t) {
+            normalizer.normalize(data[t], 0);
+        }
+    };
+
+    private static final Rows<FloatBuffer> BUFFER = new Rows<FloatBuffer>() {
+        @Override
+        public float get(@NotNull FloatBuffer data, int offset, int stride, int t, int k) {
+            return data.get(offset + t * stride + k);
+        }
+
+        @Override
+        public void set(@NotNull FloatBuffer data, int offset, int stride, int t, int k, float value) {
+            data.put(offset + t * stride + k, value);
+        }
+
+        @Override
+        public void normalize(@NotNull Normalizer normalizer, @NotNull FloatBuffer data, int offset, int stride, int t) {
+            normalizer.normalize(data, offset + t * stride);
+        }
+    };
+
+    /**
+     * @return the fixed mean of the {@link Mode#GLOBAL} mode
+     * @throws IllegalArgumentException if the statistics are not those of numCoeffs coefficients
+     */
+    @NotNull
+    private float[] globalMean(int numCoeffs) {
+        assert mean != null;
+        if (mean.length != numCoeffs)
+            throw new IllegalArgumentException("Statistics of " + mean.length + " coefficients cannot normalize " + numCoeffs);
+        return mean;
+    }
+
+    /**
+     * @return sliding after resetting it, or a new normalizer if it is null
+     */
+    @NotNull
+    private Normalizer slidingNormalizer(int numCoeffs, @Nullable Normalizer sliding) {
+        if (sliding == null)
+            return normalizer(numCoeffs);
+        sliding.reset();
+        return sliding;
+    }
+
+    /**
+     * @return a normalizer that normalizes the frames of one utterance in order
+     * @throws IllegalStateException for {@link Mode#UTTERANCE}, which cannot normalize a frame before all frames are known
+     */
+    @NotNull
+    Normalizer normalizer(int numCoeffs) {
+        switch (mode) {
+            case GLOBAL:
+                assert scale != null;
+                return new GlobalNormalizer(globalMean(numCoeffs), scale);
+            case SLIDING:
+                return new SlidingNormalizer(numCoeffs, window, normalizeVariance);
+            default:
+                throw new IllegalStateException("Per utterance normalization needs all frames, use sliding normalization to process frames incrementally");
+        }
+    }
+
+    /**
+     * Normalizes the frames of an utterance in order. Instances must not be used by multiple threads concurrently.
+     */
+    interface Normalizer {
+
+        /**
+         * @return the number of coefficients of a frame
+         */
+        int numCoeffs();
+
+        /**
+         * Normalizes the next frame, data[offset + k] for 0 <= k < numCoeffs
+         */
+        void normalize(@NotNull float[] data, int offset);
+
+        /**
+         * Normalizes the next frame, data.get(index + k) for 0 <= k < numCoeffs, without touching the position of data
+         */
+        void normalize(@NotNull FloatBuffer data, int index);
+
+        /**
+         * Forgets all frames, the next frame starts a new utterance
+         */
+        void reset();
+    }
+
+    private static final class GlobalNormalizer implements Normalizer {
+
+        @NotNull
+        private final float[] mean, scale;
+
+        GlobalNormalizer(@NotNull float[] mean, @NotNull float[] scale) {
+            this.mean = mean;
+            this.scale = scale;
+        }
+
+        @Override
+        public int numCoeffs() {
+            return mean.length;
+        }
+
+        @Override
+        public void normalize(@NotNull float[] data, int offset) {
+            for (int k = 0; k < mean.length; k++) {
+                data[offset + k] = (data[offset + k] - mean[k]) * scale[k];
+            }
+        }
+
+        @Override
+        public void normalize(@NotNull FloatBuffer data, int index) {
+            for (int k = 0; k < mean.length; k++) {
+                data.put(index + k, (data.get(index + k) - mean[k]) * scale[k]);
+            }
+        }
+
+        @Override
+        public void reset() {
+        }
+    }
+
+    /**
+     * Keeps running sums of the raw frames in the window, the frame leaving the window is subtracted again
+     */
+    private static final class SlidingNormalizer implements Normalizer {
+
+        private final int numCoeffs, window;
+        private final boolean normalizeVariance;
+
+        /**
+         * Ring buffer of the raw values of the last window frames
+         */
+        @NotNull
+        private final float[] history;
+
+        @NotNull
+        private final double[] sum, sumOfSquares;
+
+        private long numFrames;
+
+        SlidingNormalizer(int numCoeffs, int window, boolean normalizeVariance) {
+            this.numCoeffs = numCoeffs;
+            this.window = window;
+            this.normalizeVariance = normalizeVariance;
+            this.history = new float[window * numCoeffs];
+            this.sum = new double[numCoeffs];
+            this.sumOfSquares = new double[numCoeffs];
+        }
+
+        @Override
+        public int numCoeffs() {
+            return numCoeffs;
+        }
+
+        @Override
+        public void normalize(@NotNull float[] data, int offset) {
+            int slot = nextSlot();
+            for (int k = 0; k < numCoeffs; k++) {
+                data[offset + k] = normalize(slot, k, data[offset + k]);
+            }
+        }
+
+        @Override
+        public void normalize(@NotNull FloatBuffer data, int index) {
+            int slot = nextSlot();
+            for (int k = 0; k < numCoeffs; k++) {
+                data.put(index + k, normalize(slot, k, data.get(index + k)));
+            }
+        }
+
+        /**
+         * Starts the next frame
+         *
+         * @return the index of its values in history
+         */
+        private int nextSlot() {
+            return (int) (numFrames++ % window) * numCoeffs;
+        }
+
+        /**
+         * Moves coefficient k of the current frame into the window
+         *
+         * @return the normalized x
+         */
+        private float normalize(int slot, int k, float x) {
+            if (numFrames > window) {
+                float old = history[slot + k];
+                sum[k] -= old;
+                sumOfSquares[k] -= (double) old * old;
+            }
+            long count = Math.min(numFrames, window);
+            history[slot + k] = x;
+            sum[k] += x;
+            sumOfSquares[k] += (double) x * x;
+            double mean = sum[k] / count;
+            float normalized = (float) (x - mean);
+            if (normalizeVariance)
+                normalized *= scale(sumOfSquares[k] / count - mean * mean);
+            return normalized;
+        }
+
+        @Override
+        public void reset() {
+            Arrays.fill(sum, 0);
+            Arrays.fill(sumOfSquares, 0);
+            numFrames = 0;
+        }
+    }
+
+    /**
+     * Mean and variance of frames accumulated with Welford's algorithm,
+     * e.g. to compute the statistics of {@link #global(float[], float[])} over a training set
+     */
+    public static final class Stats {
+
+        private final int numCoeffs;
+
+        @NotNull
+        private final double[] mean, m2;
+
+        private long numFrames;
+
+        public Stats(int numCoeffs) {
+            this.numCoeffs = numCoeffs;
+            this.mean = new double[numCoeffs];
+            this.m2 = new double[numCoeffs];
+        }
+
+        /**
+         * Adds the frame data[offset + k], 0 <= k < numCoeffs
+         */
+        public void add(@NotNull float[] data, int offset) {
+            numFrames++;
+            for (int k = 0; k < numCoeffs; k++) {
+                double x = data[offset + k];
+                double delta = x - mean[k];
+                mean[k] += delta / numFrames;
+                m2[k] += delta * (x - mean[k]);
+            }
+        }
+
+        /**
+         * Adds numFrames frames, frame t starts at data[offset + t * stride]
+         */
+        public void add(@NotNull float[] data, int offset, int numFrames, int stride) {
+            for (int t = 0; t < numFrames; t++) {
+                add(data, offset + t * stride);
+            }
+        }
+
+        /**
+         * @return the number of added frames
+         */
+        public long numFrames() {
+            return numFrames;
+        }
+
+        /**
+         * @return the mean of each coefficient
+         */
+        @NotNull
+        public float[] mean() {
+            float[] mean = new float[numCoeffs];
+            for (int k = 0; k < numCoeffs; k++) {
+                mean[k] = (float) this.mean[k];
+            }
+            return mean;
+        }
+
+        /**
+         * @return the (population) variance of each coefficient, 0 if no frames were added
+         */
+        @NotNull
+        public float[] variance() {
+            float[] variance = new float[numCoeffs];
+            for (int k = 0; k < numCoeffs; k++) {
+                variance[k] = numFrames == 0 ? 0 : (float) (m2[k] / numFrames);
+            }
+            return variance;
+        }
+
+        /**
+         * @return a {@link Mode#GLOBAL} normalization with these statistics
+         */
+        @NotNull
+        public Cmvn toGlobal(boolean normalizeVariance) {
+            return global(mean(), normalizeVariance ? variance() : null);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * In place complex forward transform of a fixed number of points that is not a power of two,
+ * used by {@link FFTPlan} in place of its radix-2 butterflies.
+ * Implementations are immutable and can be shared between threads.
+ *
+ * @author GommeAntiLegit
+ */
+interface ComplexFFT {
+
+    /**
+     * @return the number of points of the transform
+     */
+    int size();
+
+    /**
+     * @return the number of elements real and imag of {@link #transform(float[], float[])} need, at least {@link #size()}
+     */
+    int workSize();
+
+    /**
+     * Replaces real[0 <= n < size()] and imag[0 <= n < size()] by their DFT.
+     * The elements from size() up to {@link #workSize()} are overwritten as scratch space.
+     */
+    void transform(@NotNull float[] real, @NotNull float[] imag);
+
+    /**
+     * @return a {@link MixedRadixFFT} if numPoints has no prime factors other than 2, 3 and 5, otherwise a {@link BluesteinFFT}
+     */
+    @NotNull
+    static ComplexFFT of(int numPoints) {
+        return MixedRadixFFT.supports(numPoints) ? new MixedRadixFFT(numPoints) : new BluesteinFFT(numPoints);
+    }
+}
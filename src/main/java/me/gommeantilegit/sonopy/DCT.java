@@ -30,20 +30,29 @@ public class DCT {
     @NotNull
     public static float[] dct(@NotNull float[] x, boolean orthoNorm) {
         float[] y = new float[x.length];
-        for (int k = 0; k < x.length; k++) {
+        dct(x, 0, x.length, y, 0, y.length, orthoNorm);
+        return y;
+    }
+
+    /**
+     * Computes the first numCoeffs values of {@link #dct(float[], boolean)} of x[xOffset + n], 0 <= n < size
+     * and stores them in y[yOffset + k]
+     */
+    private static void dct(@NotNull float[] x, int xOffset, int size, @NotNull float[] y, int yOffset, int numCoeffs, boolean orthoNorm) {
+        for (int k = 0; k < numCoeffs; k++) {
             float sum = 0;
-            for (int n = 0; n < x.length; n++)
-                sum += x[n] * Math.cos(Math.PI * k * (2f * n + 1f) / (2f * x.length)); // fast cos will alter results drastically
-            y[k] = 2 * sum;
+            for (int n = 0; n < size; n++)
+                sum += x[xOffset + n] * Math.cos(Math.PI * k * (2f * n + 1f) / (2f * size)); // fast cos will alter results drastically
+            float yk = 2 * sum;
             if (orthoNorm) {
                 // fast Inv sqrt will alter results to an extend
                 if (k == 0)
-                    y[k] *= Math.sqrt(1f / (4f * x.length));
+                    yk *= Math.sqrt(1f / (4f * size));
                 else
-                    y[k] *= Math.sqrt(1f / (2f * x.length));
+                    yk *= Math.sqrt(1f / (2f * size));
             }
+            y[yOffset + k] = yk;
         }
-        return y;
     }
 
     /**
@@ -63,4 +72,83 @@ public class DCT {
         return y;
     }
 
+    /**
+     * Available {@link DCTTransform} implementations
+     */
+    public enum Method {
+
+        /**
+         * Direct evaluation of the sum as done by {@link #dct(float[], boolean)}. O(N) cosines per coefficient
+         */
+        DIRECT {
+            @NotNull
+            @Override
+            public DCTTransform create(int size, int numCoeffs, boolean orthoNorm) {
+                return new DirectDCT(size, numCoeffs, orthoNorm);
+            }
+        },
+
+        /**
+         * {@link FastDCT}, O(N log N) via a single real FFT.
+         */
+        FAST {
+            @NotNull
+            @Override
+            public DCTTransform create(int size, int numCoeffs, boolean orthoNorm) {
+                return new FastDCT(size, numCoeffs, orthoNorm);
+            }
+        },
+
+        /**
+         * {@link DCTBasis}, a cached cosine basis matrix. Fastest for the small sizes used for MFCCs
+         */
+        BASIS {
+            @NotNull
+            @Override
+            public DCTTransform create(int size, int numCoeffs, boolean orthoNorm) {
+                return DCTBasis.of(size, numCoeffs, orthoNorm);
+            }
+        };
+
+        /**
+         * Creates a transform of size input values computing the first numCoeffs coefficients
+         *
+         * @param orthoNorm true if ortho normalization should be performed
+         */
+        @NotNull
+        public abstract DCTTransform create(int size, int numCoeffs, boolean orthoNorm);
+    }
+
+    /**
+     * {@link Method#DIRECT} transform
+     */
+    private static final class DirectDCT implements DCTTransform {
+
+        private final int size, numCoeffs;
+
+        private final boolean orthoNorm;
+
+        private DirectDCT(int size, int numCoeffs, boolean orthoNorm) {
+            if (numCoeffs < 0 || numCoeffs > size)
+                throw new IllegalArgumentException("numCoeffs must be in [0, " + size + "], got " + numCoeffs);
+            this.size = size;
+            this.numCoeffs = numCoeffs;
+            this.orthoNorm = orthoNorm;
+        }
+
+        @Override
+        public int inputSize() {
+            return size;
+        }
+
+        @Override
+        public int outputSize() {
+            return numCoeffs;
+        }
+
+        @Override
+        public void dct(@NotNull float[] x, int xOffset, @NotNull float[] y, int yOffset) {
+            DCT.dct(x, xOffset, size, y, yOffset, numCoeffs, orthoNorm);
+        }
+    }
 }
@@ -0,0 +1,75 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Type II discrete cosine transform as a precomputed numCoeffs x N cosine basis matrix.
+ * For the small sizes used for MFCCs a matrix vector product over the cached basis beats the FFT based
+ * {@link FastDCT}, and only the returned coefficients are computed.<br>
+ * The basis is immutable, so instances can be shared between threads. Use {@link #of(int, int, boolean)}
+ * to obtain the instance of the {@link TableCache}.
+ *
+ * @author GommeAntiLegit
+ * @see DCT#dct(float[], boolean)
+ */
+public final class DCTBasis implements DCTTransform {
+
+    private final int size, numCoeffs;
+
+    /**
+     * Row major basis: basis[k * size + n] = 2 * f(k) * cos(pi * k * (2n + 1) / (2 * N))
+     * with f(k) the (ortho) scaling factor
+     */
+    @NotNull
+    private final float[] basis;
+
+    /**
+     * @param size number of input values N
+     * @param numCoeffs number of computed coefficients
+     * @param orthoNorm true if ortho normalization should be folded into the basis
+     */
+    public DCTBasis(int size, int numCoeffs, boolean orthoNorm) {
+        if (numCoeffs < 0 || numCoeffs > size)
+            throw new IllegalArgumentException("numCoeffs must be in [0, " + size + "], got " + numCoeffs);
+        this.size = size;
+        this.numCoeffs = numCoeffs;
+        this.basis = new float[numCoeffs * size];
+        for (int k = 0; k < numCoeffs; k++) {
+            double scale = 2;
+            if (orthoNorm)
+                scale *= Math.sqrt(1.0 / ((k == 0 ? 4.0 : 2.0) * size));
+            for (int n = 0; n < size; n++) {
+                basis[k * size + n] = (float) (scale * Math.cos(Math.PI * k * (2.0 * n + 1.0) / (2.0 * size)));
+            }
+        }
+    }
+
+    /**
+     * Returns the basis for the given parameters from the {@link TableCache}, creating it on first use
+     *
+     * @see #DCTBasis(int, int, boolean)
+     */
+    @NotNull
+    public static DCTBasis of(int size, int numCoeffs, boolean orthoNorm) {
+        return TableCache.dctBasis(size, numCoeffs, orthoNorm);
+    }
+
+    @Override
+    public int inputSize() {
+        return size;
+    }
+
+    @Override
+    public int outputSize() {
+        return numCoeffs;
+    }
+
+    @Override
+    public void dct(@NotNull float[] x, int xOffset, @NotNull float[] y, int yOffset) {
+        final float[] basis = this.basis;
+        final int size = this.size;
+        for (int k = 0, row = 0; k < numCoeffs; k++, row += size) {
+            y[yOffset + k] = Kernels.dot(basis, row, x, xOffset, size);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A type II discrete cosine transform of a fixed input size, that only computes the first {@link #outputSize()}
+ * coefficients.
+ *
+ * @author GommeAntiLegit
+ * @see DCT.Method
+ */
+public interface DCTTransform {
+
+    /**
+     * @return number of input values N
+     */
+    int inputSize();
+
+    /**
+     * @return number of computed coefficients
+     */
+    int outputSize();
+
+    /**
+     * Computes y[yOffset + k] for 0 <= k < {@link #outputSize()} of the transform of x[xOffset + n], 0 <= n < N
+     * as defined by {@link DCT#dct(float[], boolean)}.
+     *
+     * @param x input values
+     * @param xOffset index of the first input value in x
+     * @param y receives the coefficients
+     * @param yOffset index of the first coefficient in y
+     */
+    void dct(@NotNull float[] x, int xOffset, @NotNull float[] y, int yOffset);
+
+}
@@ -0,0 +1,153 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Delta (and delta-delta) features appended to each row of static features.
+ * The delta of frame t is the regression d[t] = sum(n * (c[t + n] - c[t - n]), 1 <= n <= N) / (2 * sum(n^2, 1 <= n <= N))
+ * over a window of N frames on each side, with the first and last frame repeated at the edges
+ * (as in python_speech_features and HTK). Delta-deltas are the deltas of the deltas.<br>
+ * A row of numCoeffs static features is extended to {@link #rowLength(int)} values: [static | delta | delta-delta].
+ * Both orders are computed in a single pass over the frames, which only needs to look {@link #latency()} frames ahead,
+ * so the same computation is used by streams. Instances are immutable.
+ *
+ * @author GommeAntiLegit
+ * @see Sonopy#mfccSpec(float[], int, Deltas, float[], int, int)
+ * @see Sonopy#stream(int, Deltas)
+ */
+public final class Deltas {
+
+    /**
+     * 1 for deltas, 2 for deltas and delta-deltas
+     */
+    private final int order;
+
+    /**
+     * Number of frames N on each side of the regression window
+     */
+    private final int window;
+
+    /**
+     * 1 / (2 * sum(n^2, 1 <= n <= N))
+     */
+    private final float scale;
+
+    /**
+     * @param order 1 for deltas, 2 for deltas and delta-deltas
+     * @param window number of frames N on each side of the regression window, commonly 2
+     */
+    public Deltas(int order, int window) {
+        if (order < 1 || order > 2)
+            throw new IllegalArgumentException("order must be 1 or 2, got " + order);
+        if (window < 1)
+            throw new IllegalArgumentException("window must be positive, got " + window);
+        this.order = order;
+        this.window = window;
+        this.scale = (float) (1.0 / (window * (window + 1) * (2.0 * window + 1) / 3));
+    }
+
+    /**
+     * @return 1 for deltas, 2 for deltas and delta-deltas
+     */
+    public int order() {
+        return order;
+    }
+
+    /**
+     * @return the number of frames N on each side of the regression window
+     */
+    public int window() {
+        return window;
+    }
+
+    /**
+     * @return the number of frames that have to follow a frame before its deltas are known (order * window)
+     */
+    public int latency() {
+        return order * window;
+    }
+
+    /**
+     * @return the length of a row of numCoeffs static features extended by the deltas
+     */
+    public int rowLength(int numCoeffs) {
+        return numCoeffs * (order + 1);
+    }
+
+    /**
+     * Computes the deltas of numFrames rows in place. Row t starts at data[offset + t * stride] and holds numCoeffs static
+     * features, which are followed by the deltas.
+     *
+     * @param stride distance between two rows, at least {@link #rowLength(int)}
+     */
+    public void apply(@NotNull float[] data, int offset, int numFrames, int numCoeffs, int stride) {
+        if (stride < rowLength(numCoeffs))
+            throw new IllegalArgumentException("stride " + stride + " is smaller than the row length " + rowLength(numCoeffs));
+        if (numFrames > 0 && (offset < 0 || offset + (long) (numFrames - 1) * stride + rowLength(numCoeffs) > data.length))
+            throw new IllegalArgumentException("Buffer too small for " + numFrames + " rows of " + rowLength(numCoeffs) + " values");
+        for (int frame = 0; frame < numFrames; frame++) {
+            advance(data, offset, stride, 0, numCoeffs, frame);
+        }
+        finish(data, offset, stride, 0, numCoeffs, numFrames);
+    }
+
+    /**
+     * Computes the deltas that are known once the static features of frame are available:
+     * the deltas of frame - N and the delta-deltas of frame - 2N.
+     *
+     * @param numRows number of rows of a ring buffer holding at least 2 * {@link #latency()} + 1 rows,
+     *                row t is stored at index t % numRows. 0 if all rows are stored.
+     */
+    void advance(@NotNull float[] data, int offset, int stride, int numRows, int numCoeffs, long frame) {
+        long t = frame - window;
+        if (t >= 0)
+            delta(data, offset, stride, numRows, numCoeffs, t, frame, 0, numCoeffs);
+        if (order == 2 && (t -= window) >= 0)
+            delta(data, offset, stride, numRows, numCoeffs, t, frame - window, numCoeffs, 2 * numCoeffs);
+    }
+
+    /**
+     * Computes the remaining deltas after the last of numFrames frames, whose static features are repeated past the end
+     *
+     * @see #advance(float[], int, int, int, int, long)
+     */
+    void finish(@NotNull float[] data, int offset, int stride, int numRows, int numCoeffs, long numFrames) {
+        long last = numFrames - 1;
+        for (long t = Math.max(0, numFrames - window); t < numFrames; t++) {
+            delta(data, offset, stride, numRows, numCoeffs, t, last, 0, numCoeffs);
+        }
+        if (order == 2) {
+            for (long t = Math.max(0, numFrames - 2 * window); t < numFrames; t++) {
+                delta(data, offset, stride, numRows, numCoeffs, t, last, numCoeffs, 2 * numCoeffs);
+            }
+        }
+    }
+
+    /**
+     * Stores the regression of the values at column source of the frames t - N..t + N, clamped to [0, last],
+     * at column target of frame t
+     */
+    private void delta(@NotNull float[] data, int offset, int stride, int numRows, int numCoeffs, long t, long last, int source, int target) {
+        int row = row(offset, stride, numRows, t) + target;
+        for (int k = 0; k < numCoeffs; k++) {
+            data[row + k] = 0;
+        }
+        for (int n = 1; n <= window; n++) {
+            int next = row(offset, stride, numRows, Math.min(t + n, last)) + source;
+            int previous = row(offset, stride, numRows, Math.max(t - n, 0)) + source;
+            for (int k = 0; k < numCoeffs; k++) {
+                data[row + k] += n * (data[next + k] - data[previous + k]);
+            }
+        }
+        for (int k = 0; k < numCoeffs; k++) {
+            data[row + k] *= scale;
+        }
+    }
+
+    /**
+     * @return the index of the first value of row t
+     */
+    static int row(int offset, int stride, int numRows, long t) {
+        return offset + (int) (numRows == 0 ? t : t % numRows) * stride;
+    }
+}
@@ -39,8 +39,6 @@ Please visit http://ocvolume.sourceforge.net.
  */
 package me.gommeantilegit.sonopy;
 
-import java.util.Arrays;
-
 /**
  * Fast Fourier Transform by Danny Su and Hanns Holger Rutz (adjusted to match np.fft.rfft by GommeAntiLegit)<br>
  * <b>description:</b> FFT class for real signals. Upon entry, N contains the
@@ -57,71 +55,13 @@ import java.util.Arrays;
 public class FFT {
 
     /**
-     * Performs Fast Fourier Transformation (adjusted to match np.fft.rfft)
+     * Performs Fast Fourier Transformation (adjusted to match np.fft.rfft).
+     * Builds a new {@link FFTPlan} on every call, reuse a plan when transforming many signals of the same size.
+     * @param numPoints number of points of the transform, see {@link FFTPlan#FFTPlan(int)}
      * @see FFT
+     * @see FFTPlan#rfft(float[])
      */
     public static float[][] rfft(float[] signal, int numPoints) {
-        // initialize real & imag array
-        float[] real = Arrays.copyOf(signal, signal.length);
-        float[] imag = new float[numPoints];
-
-        // FFT using the real & imag array
-        final float pi = (float) Math.PI;
-        final int numStages = (int) (Math.log(numPoints) / Math.log(2));
-        final int halfNumPoints = numPoints >> 1;
-        int j = halfNumPoints;
-        // FFT time domain decomposition carried out by "bit reversal sorting"
-        // algorithm
-        int k;
-        for (int i = 1; i < numPoints - 2; i++) {
-            if (i < j) {
-                // swap
-                float tempReal = real[j];
-                float tempImag = imag[j];
-                real[j] = real[i];
-                imag[j] = imag[i];
-                real[i] = tempReal;
-                imag[i] = tempImag;
-            }
-            k = halfNumPoints;
-            while (k <= j) {
-                j -= k;
-                k >>= 1;
-            }
-            j += k;
-        }
-
-        // loop for each stage
-        for (int stage = 1; stage <= numStages; stage++) {
-            int LE = 1;
-            for (int i = 0; i < stage; i++) {
-                LE <<= 1;
-            }
-            final int LE2 = LE >> 1;
-            float UR = 1;
-            float UI = 0;
-            // calculate sine & cosine values
-            final float SR = (float) Math.cos(pi / LE2);
-            final float SI = (float) -Math.sin(pi / LE2);
-            // loop for each sub DFT
-            for (int subDFT = 1; subDFT <= LE2; subDFT++) {
-                // loop for each butterfly
-                for (int butterfly = subDFT - 1; butterfly <= numPoints - 1; butterfly += LE) {
-                    int ip = butterfly + LE2;
-                    // butterfly calculation
-                    float tempReal = real[ip] * UR - imag[ip] * UI;
-                    float tempImag = real[ip] * UI + imag[ip] * UR;
-                    real[ip] = real[butterfly] - tempReal;
-                    imag[ip] = imag[butterfly] - tempImag;
-                    real[butterfly] += tempReal;
-                    imag[butterfly] += tempImag;
-                }
-
-                float tempUR = UR;
-                UR = tempUR * SR - UI * SI;
-                UI = tempUR * SI + UI * SR;
-            }
-        }
-        return new float[][]{Arrays.copyOfRange(real, 0, numPoints / 2 + 1), Arrays.copyOfRange(imag, 0, numPoints / 2 + 1)};
+        return new FFTPlan(numPoints).rfft(signal);
     }
-}
\ No newline at end of file
+}
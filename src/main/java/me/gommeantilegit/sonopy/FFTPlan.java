@@ -0,0 +1,474 @@
+/*
+OC Volume - Java Speech Recognition Engine
+Copyright (c) 2002-2004, OrangeCow organization
+All rights reserved.
+Redistribution and use in source and binary forms,
+with or without modification, are permitted provided
+that the following conditions are met:
+ * Redistributions of source code must retain the
+above copyright notice, this list of conditions
+and the following disclaimer.
+ * Redistributions in binary form must reproduce the
+above copyright notice, this list of conditions
+and the following disclaimer in the documentation
+and/or other materials provided with the
+distribution.
+ * Neither the name of the OrangeCow organization
+nor the names of its contributors may be used to
+endorse or promote products derived from this
+software without specific prior written
+permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS
+AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+Contact information:
+Please visit http://ocvolume.sourceforge.net.
+ */
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed tables for {@link FFT} transforms of a fixed size.
+ * Holds the twiddle factors and the bit reversal permutation, so that repeated transforms with the same
+ * number of points only perform the butterflies. The butterflies are the ones of the original {@link FFT}
+ * implementation by Danny Su and Hanns Holger Rutz.<br>
+ * Other sizes are supported as well: complex transforms whose size has the prime factors 2, 3 and 5 are computed
+ * by {@link MixedRadixFFT}, all others by {@link BluesteinFFT}. Powers of two can use the radix-4 stages of
+ * {@link MixedRadixFFT} as well, see {@link Algorithm}. Real transforms of an even size use a complex transform
+ * of half the size, real transforms of an odd size a complex transform of the full size.
+ * Where these need more space than the output arrays provide, they run in scratch arrays of {@link #scratchSize()} elements,
+ * which callers transforming repeatedly pass to {@link #rfft(float[], int, int, float[], float[], float[], float[], float[])}
+ * and {@link #transform(float[], float[], float[], float[])} instead of letting each call allocate them.<br>
+ * Instances are immutable and can be shared between threads.
+ *
+ * @author Danny Su
+ * @author Hanns Holger Rutz
+ * @author GommeAntiLegit
+ */
+public final class FFTPlan {
+
+    /**
+     * Butterflies used for transforms of a power of two size. Other sizes always use {@link MixedRadixFFT} or {@link BluesteinFFT}.
+     */
+    public enum Algorithm {
+
+        /**
+         * Radix-2 butterflies of the original {@link FFT} implementation,
+         * reading the twiddle factors of all stages from one table with a stride
+         */
+        RADIX_2,
+
+        /**
+         * Radix-4 stages, preceded by one radix-2 stage for odd powers of two.
+         * Needs a quarter fewer multiplications and half the passes over the data of {@link #RADIX_2},
+         * the twiddle factors of each stage are stored in the order they are read.
+         * The results differ from {@link #RADIX_2} by rounding only.
+         */
+        RADIX_4
+    }
+
+    /**
+     * Scratch arrays of plans that do not need any
+     */
+    private static final float[] NO_SCRATCH = new float[0];
+
+    /**
+     * Number of points of the transform
+     */
+    private final int numPoints;
+
+    @NotNull
+    private final Algorithm algorithm;
+
+    /**
+     * cos(2 * pi * k / numPoints) for 0 <= k < numPoints / 2
+     */
+    @NotNull
+    private final float[] cos;
+
+    /**
+     * -sin(2 * pi * k / numPoints) for 0 <= k < numPoints / 2
+     */
+    @NotNull
+    private final float[] sin;
+
+    /**
+     * Index pairs (i, j) with i < j that are swapped by the "bit reversal sorting".
+     * Stored flat as [i0, j0, i1, j1, ...]
+     */
+    @NotNull
+    private final int[] swaps;
+
+    /**
+     * Bit reversal swaps of the numPoints / 2 point complex transform used by {@link #rfft(float[], int, int, float[], float[])}
+     */
+    @NotNull
+    private final int[] halfSwaps;
+
+    /**
+     * Complex transform of numPoints points, null if the radix-2 butterflies are used
+     */
+    @Nullable
+    private final ComplexFFT fullTransform;
+
+    /**
+     * Complex transform of numPoints / 2 points used by the real transform of an even size,
+     * null if the radix-2 butterflies are used or numPoints is odd
+     */
+    @Nullable
+    private final ComplexFFT halfTransform;
+
+    /**
+     * Number of elements of each scratch array, 0 if the transforms run in the arrays of the caller
+     */
+    private final int scratchSize;
+
+    /**
+     * Plan using {@link Algorithm#RADIX_2} for powers of two
+     *
+     * @param numPoints number of points of the transform. Powers of two are fastest, followed by products of 2, 3 and 5.
+     */
+    public FFTPlan(int numPoints) {
+        this(numPoints, Algorithm.RADIX_2);
+    }
+
+    /**
+     * @param numPoints number of points of the transform. Powers of two are fastest, followed by products of 2, 3 and 5.
+     * @param algorithm butterflies used if numPoints is a power of two, ignored for other sizes
+     */
+    public FFTPlan(int numPoints, @NotNull Algorithm algorithm) {
+        if (numPoints < 1)
+            throw new IllegalArgumentException("numPoints must be positive, got " + numPoints);
+        this.numPoints = numPoints;
+        this.algorithm = usedAlgorithm(numPoints, algorithm);
+        int halfNumPoints = numPoints >> 1;
+        this.cos = new float[halfNumPoints];
+        this.sin = new float[halfNumPoints];
+        for (int k = 0; k < halfNumPoints; k++) {
+            double angle = 2 * Math.PI * k / numPoints;
+            this.cos[k] = (float) Math.cos(angle);
+            this.sin[k] = (float) -Math.sin(angle);
+        }
+        if (this.algorithm == Algorithm.RADIX_2) {
+            this.swaps = bitReversalSwaps(numPoints);
+            this.halfSwaps = halfNumPoints == 0 ? new int[0] : bitReversalSwaps(halfNumPoints);
+            this.fullTransform = null;
+            this.halfTransform = null;
+            this.scratchSize = 0;
+        } else {
+            this.swaps = new int[0];
+            this.halfSwaps = new int[0];
+            ComplexFFT fullTransform = ComplexFFT.of(numPoints);
+            this.fullTransform = fullTransform;
+            this.halfTransform = (numPoints & 1) == 0 ? ComplexFFT.of(halfNumPoints) : null;
+            // the half size transform never needs more space than the full size one
+            boolean needsScratch = fullTransform.workSize() > numPoints
+                    || (halfTransform == null ? numPoints > 1 : halfTransform.workSize() > halfNumPoints);
+            this.scratchSize = needsScratch ? fullTransform.workSize() : 0;
+        }
+    }
+
+    /**
+     * @return the requested algorithm if numPoints is a power of two, otherwise {@link Algorithm#RADIX_4},
+     * as other sizes use the radix-4 stages of {@link MixedRadixFFT} or a {@link BluesteinFFT} on radix-4 plans
+     */
+    @NotNull
+    static Algorithm usedAlgorithm(int numPoints, @NotNull Algorithm algorithm) {
+        return (numPoints & (numPoints - 1)) == 0 ? algorithm : Algorithm.RADIX_4;
+    }
+
+    /**
+     * @return the index pairs swapped by the bit reversal permutation of numPoints elements
+     */
+    @NotNull
+    private static int[] bitReversalSwaps(int numPoints) {
+        int numBits = Integer.numberOfTrailingZeros(numPoints);
+        int[] pairs = new int[numPoints];
+        int numPairs = 0;
+        for (int i = 0; i < numPoints; i++) {
+            int j = numBits == 0 ? 0 : Integer.reverse(i) >>> (32 - numBits);
+            if (i < j) {
+                pairs[numPairs++] = i;
+                pairs[numPairs++] = j;
+            }
+        }
+        int[] swaps = new int[numPairs];
+        System.arraycopy(pairs, 0, swaps, 0, numPairs);
+        return swaps;
+    }
+
+    /**
+     * @return the number of points of the transform
+     */
+    public int size() {
+        return numPoints;
+    }
+
+    /**
+     * @return the butterflies used if {@link #size()} is a power of two, {@link Algorithm#RADIX_4} for other sizes
+     */
+    @NotNull
+    public Algorithm algorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return the number of elements of each scratch array passed to
+     * {@link #rfft(float[], int, int, float[], float[], float[], float[], float[])} and {@link #transform(float[], float[], float[], float[])},
+     * 0 if the plan needs no scratch space (e.g. for powers of two and their products with 3 and 5)
+     */
+    public int scratchSize() {
+        return scratchSize;
+    }
+
+    /**
+     * @return scratch arrays for a single call of an overload without scratch arrays
+     */
+    @NotNull
+    private float[] newScratch() {
+        return scratchSize == 0 ? NO_SCRATCH : new float[scratchSize];
+    }
+
+    /**
+     * In place complex forward transform of the first {@link #size()} elements of real and imag.
+     * Allocates scratch arrays if {@link #scratchSize()} is not 0.
+     *
+     * @param real real part of the input, replaced by the real part of the DFT output
+     * @param imag imaginary part of the input, replaced by the imaginary part of the DFT output
+     * @see #transform(float[], float[], float[], float[])
+     */
+    public void transform(@NotNull float[] real, @NotNull float[] imag) {
+        transform(real, imag, newScratch(), newScratch());
+    }
+
+    /**
+     * {@link #transform(float[], float[])} with caller supplied scratch arrays, so that repeated transforms do not allocate
+     *
+     * @param scratchReal scratch array of at least {@link #scratchSize()} elements
+     * @param scratchImag scratch array of at least {@link #scratchSize()} elements
+     */
+    public void transform(@NotNull float[] real, @NotNull float[] imag, @NotNull float[] scratchReal, @NotNull float[] scratchImag) {
+        if (fullTransform == null) {
+            permute(real, imag, swaps);
+            butterflies(real, imag, numPoints, 1);
+        } else if (fullTransform.workSize() == numPoints) {
+            fullTransform.transform(real, imag);
+        } else {
+            System.arraycopy(real, 0, scratchReal, 0, numPoints);
+            System.arraycopy(imag, 0, scratchImag, 0, numPoints);
+            fullTransform.transform(scratchReal, scratchImag);
+            System.arraycopy(scratchReal, 0, real, 0, numPoints);
+            System.arraycopy(scratchImag, 0, imag, 0, numPoints);
+        }
+    }
+
+    /**
+     * Performs the swaps of a bit reversal permutation
+     */
+    private static void permute(@NotNull float[] real, @NotNull float[] imag, @NotNull int[] swaps) {
+        for (int p = 0; p < swaps.length; p += 2) {
+            int i = swaps[p], j = swaps[p + 1];
+            float tempReal = real[j];
+            float tempImag = imag[j];
+            real[j] = real[i];
+            imag[j] = imag[i];
+            real[i] = tempReal;
+            imag[i] = tempImag;
+        }
+    }
+
+    /**
+     * Radix-2 butterflies of an n point transform on bit reversal sorted input.
+     *
+     * @param twiddleStride numPoints / n, the step between the twiddle factors of this plan used by the transform
+     */
+    private void butterflies(@NotNull float[] real, @NotNull float[] imag, int n, int twiddleStride) {
+        final float[] cos = this.cos, sin = this.sin;
+        // loop for each stage
+        for (int LE = 2; LE <= n; LE <<= 1) {
+            final int LE2 = LE >> 1;
+            final int twiddleStep = n / LE * twiddleStride;
+            // loop for each sub DFT
+            for (int subDFT = 0; subDFT < LE2; subDFT++) {
+                final float UR = cos[subDFT * twiddleStep];
+                final float UI = sin[subDFT * twiddleStep];
+                // loop for each butterfly
+                for (int butterfly = subDFT; butterfly < n; butterfly += LE) {
+                    int ip = butterfly + LE2;
+                    // butterfly calculation
+                    float tempReal = real[ip] * UR - imag[ip] * UI;
+                    float tempImag = real[ip] * UI + imag[ip] * UR;
+                    real[ip] = real[butterfly] - tempReal;
+                    imag[ip] = imag[butterfly] - tempImag;
+                    real[butterfly] += tempReal;
+                    imag[butterfly] += tempImag;
+                }
+            }
+        }
+    }
+
+    /**
+     * Transform of a real signal (matches np.fft.rfft(signal, n=size())).
+     * The signal is truncated or zero padded to {@link #size()} points.
+     *
+     * @return {real, imag} each containing size() / 2 + 1 values
+     * @see #rfft(float[], int, int, float[], float[])
+     */
+    @NotNull
+    public float[][] rfft(@NotNull float[] signal) {
+        int numOut = numPoints / 2 + 1;
+        float[] real = new float[numOut], imag = new float[numOut];
+        rfft(signal, 0, signal.length, real, imag);
+        return new float[][]{real, imag};
+    }
+
+    /**
+     * Transform of a real signal (matches np.fft.rfft(signal[offset:offset + length], n=size())).
+     * The signal is truncated or zero padded to {@link #size()} points.<br>
+     * The even and odd samples are packed into the real and imaginary part of a size() / 2 point complex transform,
+     * whose output is then split into the spectrum of the real signal. This halves the butterflies of
+     * a full complex transform of the zero extended signal.
+     *
+     * @param signal the real input signal
+     * @param offset index of the first sample in signal
+     * @param length number of samples in signal
+     * @param real receives the real part of the output in real[0 <= k <= size() / 2]
+     * @param imag receives the imaginary part of the output in imag[0 <= k <= size() / 2]
+     */
+    public void rfft(@NotNull float[] signal, int offset, int length, @NotNull float[] real, @NotNull float[] imag) {
+        rfft(signal, offset, length, null, real, imag);
+    }
+
+    /**
+     * {@link #rfft(float[], int, int, float[], float[])} of the windowed signal signal[offset + n] * window[n].
+     * The window is applied while the samples are packed into the complex input, so no windowed copy of the signal is made.
+     * Allocates scratch arrays if {@link #scratchSize()} is not 0.
+     *
+     * @param window at least min(length, size()) window coefficients, or null for a rectangular window
+     * @see #rfft(float[], int, int, float[], float[], float[], float[], float[])
+     */
+    public void rfft(@NotNull float[] signal, int offset, int length, @Nullable float[] window, @NotNull float[] real, @NotNull float[] imag) {
+        rfft(signal, offset, length, window, real, imag, newScratch(), newScratch());
+    }
+
+    /**
+     * {@link #rfft(float[], int, int, float[], float[], float[])} with caller supplied scratch arrays, so that repeated transforms do not allocate
+     *
+     * @param scratchReal scratch array of at least {@link #scratchSize()} elements
+     * @param scratchImag scratch array of at least {@link #scratchSize()} elements
+     */
+    public void rfft(@NotNull float[] signal, int offset, int length, @Nullable float[] window, @NotNull float[] real, @NotNull float[] imag,
+                     @NotNull float[] scratchReal, @NotNull float[] scratchImag) {
+        if (numPoints == 1) {
+            real[0] = length > 0 ? (window == null ? signal[offset] : signal[offset] * window[0]) : 0;
+            imag[0] = 0;
+            return;
+        }
+        if ((numPoints & 1) != 0) {
+            oddRfft(signal, offset, length, window, real, imag, scratchReal, scratchImag);
+            return;
+        }
+        final int halfNumPoints = numPoints >> 1;
+        length = Math.min(length, numPoints);
+        // a half size transform needing more space than real and imag provide runs in the scratch arrays
+        boolean inScratch = halfTransform != null && halfTransform.workSize() > halfNumPoints;
+        final float[] zReal = inScratch ? scratchReal : real, zImag = inScratch ? scratchImag : imag;
+
+        // z[n] = x[2n] + i * x[2n + 1]
+        int numPairs = length >> 1;
+        if (window == null) {
+            for (int n = 0, i = offset; n < numPairs; n++, i += 2) {
+                zReal[n] = signal[i];
+                zImag[n] = signal[i + 1];
+            }
+        } else {
+            for (int n = 0, i = offset, w = 0; n < numPairs; n++, i += 2, w += 2) {
+                zReal[n] = signal[i] * window[w];
+                zImag[n] = signal[i + 1] * window[w + 1];
+            }
+        }
+        int n = numPairs;
+        if ((length & 1) != 0) {
+            zReal[n] = window == null ? signal[offset + length - 1] : signal[offset + length - 1] * window[length - 1];
+            zImag[n] = 0;
+            n++;
+        }
+        for (; n < halfNumPoints; n++) {
+            zReal[n] = 0;
+            zImag[n] = 0;
+        }
+
+        if (halfTransform != null) {
+            halfTransform.transform(zReal, zImag);
+            if (inScratch) {
+                System.arraycopy(zReal, 0, real, 0, halfNumPoints);
+                System.arraycopy(zImag, 0, imag, 0, halfNumPoints);
+            }
+        } else {
+            permute(real, imag, halfSwaps);
+            butterflies(real, imag, halfNumPoints, 2);
+        }
+
+        // Z[0] and Z[N/2] are both determined by Z[0]
+        float z0Real = real[0], z0Imag = imag[0];
+        real[0] = z0Real + z0Imag;
+        imag[0] = 0;
+        real[halfNumPoints] = z0Real - z0Imag;
+        imag[halfNumPoints] = 0;
+
+        // X[k] = E[k] + W^k * O[k] and X[N/2 - k] = conj(E[k] - W^k * O[k]) with
+        // E[k] = (Z[k] + conj(Z[N/2 - k])) / 2 and O[k] = (Z[k] - conj(Z[N/2 - k])) / 2i
+        final float[] cos = this.cos, sin = this.sin;
+        for (int k = 1, m = halfNumPoints - 1; k <= m; k++, m--) {
+            float zkReal = real[k], zkImag = imag[k];
+            float zmReal = real[m], zmImag = imag[m];
+            float eReal = 0.5f * (zkReal + zmReal);
+            float eImag = 0.5f * (zkImag - zmImag);
+            float oReal = 0.5f * (zkImag + zmImag);
+            float oImag = 0.5f * (zmReal - zkReal);
+            float wReal = cos[k], wImag = sin[k];
+            float tReal = wReal * oReal - wImag * oImag;
+            float tImag = wReal * oImag + wImag * oReal;
+            real[k] = eReal + tReal;
+            imag[k] = eImag + tImag;
+            real[m] = eReal - tReal;
+            imag[m] = tImag - eImag;
+        }
+    }
+
+    /**
+     * Real transform of an odd size as a complex transform of the full size in the scratch arrays,
+     * as the samples cannot be packed into pairs
+     */
+    private void oddRfft(@NotNull float[] signal, int offset, int length, @Nullable float[] window, @NotNull float[] real, @NotNull float[] imag,
+                         @NotNull float[] scratchReal, @NotNull float[] scratchImag) {
+        assert fullTransform != null;
+        length = Math.min(length, numPoints);
+        for (int n = 0; n < length; n++) {
+            scratchReal[n] = window == null ? signal[offset + n] : signal[offset + n] * window[n];
+        }
+        Arrays.fill(scratchReal, length, numPoints, 0);
+        Arrays.fill(scratchImag, 0, numPoints, 0);
+        fullTransform.transform(scratchReal, scratchImag);
+        int numOut = numPoints / 2 + 1;
+        System.arraycopy(scratchReal, 0, real, 0, numOut);
+        System.arraycopy(scratchImag, 0, imag, 0, numOut);
+    }
+}
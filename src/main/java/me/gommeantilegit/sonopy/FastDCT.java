@@ -0,0 +1,98 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * O(N log N) type II discrete cosine transform computed with a single N point real FFT (Makhoul's algorithm).<br>
+ * The input is reordered to v[n] = x[2n], v[N - 1 - n] = x[2n + 1], so that
+ * <pre>
+ * y[k] = 2 * Re(exp(-i*pi*k/(2*N)) * V[k])
+ * </pre>
+ * where V is the DFT of v. The rotation factors are precomputed with the ortho normalization folded in.<br>
+ * Instances hold scratch buffers and must not be used by multiple threads concurrently.
+ *
+ * @author GommeAntiLegit
+ * @see DCT#dct(float[], boolean)
+ */
+public final class FastDCT implements DCTTransform {
+
+    @NotNull
+    private final FFTPlan plan;
+
+    private final int numCoeffs;
+
+    /**
+     * 2 * f(k) * cos(pi * k / (2 * N)) and 2 * f(k) * sin(pi * k / (2 * N)) with f(k) the (ortho) scaling factor
+     */
+    @NotNull
+    private final float[] cos, sin;
+
+    /**
+     * Scratch for the reordered input, its DFT and the fft
+     */
+    @NotNull
+    private final float[] v, real, imag, scratchReal, scratchImag;
+
+    /**
+     * @param size number of input values N. Must be supported by {@link FFTPlan}
+     * @param numCoeffs number of computed coefficients
+     * @param orthoNorm true if ortho normalization should be performed
+     */
+    public FastDCT(int size, int numCoeffs, boolean orthoNorm) {
+        if (numCoeffs < 0 || numCoeffs > size)
+            throw new IllegalArgumentException("numCoeffs must be in [0, " + size + "], got " + numCoeffs);
+        this.plan = TableCache.fftPlan(size);
+        this.numCoeffs = numCoeffs;
+        this.cos = new float[numCoeffs];
+        this.sin = new float[numCoeffs];
+        for (int k = 0; k < numCoeffs; k++) {
+            double scale = 2;
+            if (orthoNorm)
+                scale *= Math.sqrt(1.0 / ((k == 0 ? 4.0 : 2.0) * size));
+            double angle = Math.PI * k / (2.0 * size);
+            this.cos[k] = (float) (scale * Math.cos(angle));
+            this.sin[k] = (float) (scale * Math.sin(angle));
+        }
+        this.v = new float[size];
+        this.real = new float[size / 2 + 1];
+        this.imag = new float[size / 2 + 1];
+        this.scratchReal = new float[plan.scratchSize()];
+        this.scratchImag = new float[plan.scratchSize()];
+    }
+
+    @Override
+    public int inputSize() {
+        return plan.size();
+    }
+
+    @Override
+    public int outputSize() {
+        return numCoeffs;
+    }
+
+    @Override
+    public void dct(@NotNull float[] x, int xOffset, @NotNull float[] y, int yOffset) {
+        final int size = plan.size();
+        final float[] v = this.v, real = this.real, imag = this.imag;
+        for (int n = 0, i = xOffset; n < size; n++, i++) {
+            if ((n & 1) == 0)
+                v[n >> 1] = x[i];
+            else
+                v[size - 1 - (n >> 1)] = x[i];
+        }
+        plan.rfft(v, 0, size, null, real, imag, scratchReal, scratchImag);
+        final int halfSize = size / 2;
+        for (int k = 0; k < numCoeffs; k++) {
+            // V[k] = conj(V[N - k]) for the upper half of the spectrum of a real signal
+            float vReal, vImag;
+            if (k <= halfSize) {
+                vReal = real[k];
+                vImag = imag[k];
+            } else {
+                vReal = real[size - k];
+                vImag = -imag[size - k];
+            }
+            y[yOffset + k] = vReal * cos[k] + vImag * sin[k];
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Features of many clips stored in one contiguous row major buffer.
+ * The frames of clip c are the rows {@link #firstFrame(int)} <= i < firstFrame(c) + {@link #numFrames(int)},
+ * row i starts at data[i * {@link #rowLength()}].
+ *
+ * @author GommeAntiLegit
+ * @see Sonopy#mfccBatch(java.util.List, int)
+ */
+public final class FeatureBatch {
+
+    @NotNull
+    private final float[] data;
+
+    private final int rowLength;
+
+    /**
+     * firstFrames[c] is the first row of clip c, firstFrames[numClips] the total number of rows
+     */
+    @NotNull
+    private final int[] firstFrames;
+
+    FeatureBatch(@NotNull float[] data, int rowLength, @NotNull int[] firstFrames) {
+        this.data = data;
+        this.rowLength = rowLength;
+        this.firstFrames = firstFrames;
+    }
+
+    /**
+     * @return the backing buffer of all rows
+     */
+    @NotNull
+    public float[] data() {
+        return data;
+    }
+
+    /**
+     * @return all rows as one matrix, sharing the backing buffer
+     */
+    @NotNull
+    public FeatureMatrix matrix() {
+        return new FeatureMatrix(data, 0, numFrames(), rowLength, rowLength);
+    }
+
+    /**
+     * @return the rows of the given clip as matrix, sharing the backing buffer
+     */
+    @NotNull
+    public FeatureMatrix matrix(int clip) {
+        return new FeatureMatrix(data, firstFrames[clip] * rowLength, numFrames(clip), rowLength, rowLength);
+    }
+
+    /**
+     * @return number of values per frame
+     */
+    public int rowLength() {
+        return rowLength;
+    }
+
+    /**
+     * @return number of clips
+     */
+    public int numClips() {
+        return firstFrames.length - 1;
+    }
+
+    /**
+     * @return total number of frames of all clips
+     */
+    public int numFrames() {
+        return firstFrames[firstFrames.length - 1];
+    }
+
+    /**
+     * @return number of frames of the given clip
+     */
+    public int numFrames(int clip) {
+        return firstFrames[clip + 1] - firstFrames[clip];
+    }
+
+    /**
+     * @return the row index of the first frame of the given clip
+     */
+    public int firstFrame(int clip) {
+        return firstFrames[clip];
+    }
+
+    /**
+     * @return the value j of frame i of the given clip
+     */
+    public float get(int clip, int frame, int j) {
+        return data[(firstFrames[clip] + frame) * rowLength + j];
+    }
+
+    /**
+     * @return a copy of the frames of the given clip as returned by {@link Sonopy#mfccSpec(float[], int)}
+     */
+    @NotNull
+    public float[][] toArray(int clip) {
+        float[][] frames = new float[numFrames(clip)][rowLength];
+        for (int i = 0; i < frames.length; i++) {
+            System.arraycopy(data, (firstFrames[clip] + i) * rowLength, frames[i], 0, rowLength);
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,19 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives features block by block while they are extracted
+ *
+ * @author GommeAntiLegit
+ * @see Sonopy#mfccFile(WavFile, int, FeatureConsumer)
+ */
+public interface FeatureConsumer {
+
+    /**
+     * @param firstFrame index of the first frame of the block in the whole signal
+     * @param frames the frames of the block. The matrix is reused for the next block, so it is only valid during this call.
+     */
+    void accept(long firstFrame, @NotNull FeatureMatrix frames);
+
+}
@@ -0,0 +1,130 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.FloatBuffer;
+
+/**
+ * Dense row major numFrames x numCoeffs matrix backed by a single float array.
+ * Frame i starts at data[offset + i * stride], so rows can be handed to an inference runtime without copying
+ * them out of separate arrays.
+ *
+ * @author GommeAntiLegit
+ * @see Sonopy#mfccMatrix(float[], int)
+ */
+public final class FeatureMatrix {
+
+    @NotNull
+    private final float[] data;
+
+    private final int offset;
+    private final int numFrames;
+    private final int numCoeffs;
+    private final int stride;
+
+    /**
+     * Allocates a zero filled matrix with stride numCoeffs
+     */
+    public FeatureMatrix(int numFrames, int numCoeffs) {
+        this(new float[numFrames * numCoeffs], 0, numFrames, numCoeffs, numCoeffs);
+    }
+
+    /**
+     * Wraps an existing buffer
+     *
+     * @param data backing buffer
+     * @param offset index of the first value of the first frame
+     * @param numFrames number of rows
+     * @param numCoeffs number of values per row
+     * @param stride distance between the first values of two consecutive rows
+     */
+    public FeatureMatrix(@NotNull float[] data, int offset, int numFrames, int numCoeffs, int stride) {
+        if (numFrames < 0 || numCoeffs < 0 || stride < numCoeffs)
+            throw new IllegalArgumentException("Invalid shape " + numFrames + " x " + numCoeffs + " with stride " + stride);
+        if (numFrames > 0 && (offset < 0 || offset + (long) (numFrames - 1) * stride + numCoeffs > data.length))
+            throw new IllegalArgumentException("Buffer too small for " + numFrames + " x " + numCoeffs + " with stride " + stride);
+        this.data = data;
+        this.offset = offset;
+        this.numFrames = numFrames;
+        this.numCoeffs = numCoeffs;
+        this.stride = stride;
+    }
+
+    /**
+     * @return the backing buffer
+     */
+    @NotNull
+    public float[] data() {
+        return data;
+    }
+
+    /**
+     * @return index of the first value of the first frame in {@link #data()}
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * @return number of rows
+     */
+    public int numFrames() {
+        return numFrames;
+    }
+
+    /**
+     * @return number of values per row
+     */
+    public int numCoeffs() {
+        return numCoeffs;
+    }
+
+    /**
+     * @return distance between the first values of two consecutive rows in {@link #data()}
+     */
+    public int stride() {
+        return stride;
+    }
+
+    /**
+     * @return index of value j of frame i in {@link #data()}
+     */
+    public int index(int frame, int j) {
+        return offset + frame * stride + j;
+    }
+
+    /**
+     * @return value j of frame i
+     */
+    public float get(int frame, int j) {
+        return data[index(frame, j)];
+    }
+
+    /**
+     * Sets value j of frame i
+     */
+    public void set(int frame, int j, float value) {
+        data[index(frame, j)] = value;
+    }
+
+    /**
+     * @return a buffer view of the rows (including padding between rows if stride > numCoeffs) without copying
+     */
+    @NotNull
+    public FloatBuffer asFloatBuffer() {
+        int length = numFrames == 0 ? 0 : (numFrames - 1) * stride + numCoeffs;
+        return FloatBuffer.wrap(data, offset, length).slice();
+    }
+
+    /**
+     * @return a copy of the matrix as jagged array
+     */
+    @NotNull
+    public float[][] toArray() {
+        float[][] frames = new float[numFrames][numCoeffs];
+        for (int i = 0; i < numFrames; i++) {
+            System.arraycopy(data, index(i, 0), frames[i], 0, numCoeffs);
+        }
+        return frames;
+    }
+}
@@ -0,0 +1,327 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * Computes the features of a single audio frame.
+ * Every stage (fft -> power -> mel -> log -> dct) works on scratch buffers owned by this processor,
+ * so a frame stays cache resident and only the final result is written to the output row.<br>
+ * Instances must not be used by multiple threads concurrently.
+ *
+ * @author GommeAntiLegit
+ */
+final class FrameProcessor {
+
+    private final int audioWindowSize;
+
+    @NotNull
+    private final FFTPlan plan;
+
+    @NotNull
+    private final MelFilterbank filterbank;
+
+    /**
+     * Scratch buffers for the fft output, the power spectrum and the (log) mel energies
+     */
+    @NotNull
+    private final float[] real, imag, powers, mels;
+
+    /**
+     * Scratch buffers of the fft, empty for sizes that need none
+     */
+    @NotNull
+    private final float[] scratchReal, scratchImag;
+
+    /**
+     * Scratch buffer for frames of audio that is not stored as float[] and conditioned frames.
+     * The frame starts at index 1, index 0 holds the sample before the frame.
+     */
+    @NotNull
+    private final float[] frame;
+
+    /**
+     * Number of samples of a frame that reach the fft, the fft truncates frames longer than its size
+     */
+    private final int frameLength;
+
+    /**
+     * Scratch buffer for output rows that are not written to a float[], grown on demand
+     */
+    @NotNull
+    private float[] row;
+
+    /**
+     * Logarithm applied to the mel energies and the frame energy
+     */
+    @NotNull
+    private LogMethod logMethod = LogMethod.EXACT;
+
+    /**
+     * Coefficients multiplied with each frame, null for a rectangular window
+     */
+    @Nullable
+    private float[] window;
+
+    /**
+     * Coefficient a of the pre-emphasis filter y[n] = x[n] - a * x[n - 1], 0 if disabled
+     */
+    private float preEmphasis;
+
+    /**
+     * True if the mean of each frame is subtracted from its samples
+     */
+    private boolean removeDcOffset;
+
+    FrameProcessor(int audioWindowSize, @NotNull FFTPlan plan, @NotNull MelFilterbank filterbank) {
+        this.audioWindowSize = audioWindowSize;
+        this.plan = plan;
+        this.filterbank = filterbank;
+        int numBins = plan.size() / 2 + 1;
+        this.real = new float[numBins];
+        this.imag = new float[numBins];
+        this.scratchReal = new float[plan.scratchSize()];
+        this.scratchImag = new float[plan.scratchSize()];
+        this.powers = new float[numBins];
+        this.mels = new float[filterbank.numFilters()];
+        this.frame = new float[audioWindowSize + 1];
+        this.frameLength = Math.min(audioWindowSize, plan.size());
+        this.row = new float[filterbank.numFilters()];
+    }
+
+    /**
+     * @return this
+     */
+    @NotNull
+    FrameProcessor setLogMethod(@NotNull LogMethod logMethod) {
+        this.logMethod = logMethod;
+        return this;
+    }
+
+    /**
+     * @param window audioWindowSize coefficients multiplied with each frame, or null for a rectangular window
+     * @return this
+     */
+    @NotNull
+    FrameProcessor setWindow(@Nullable float[] window) {
+        if (window != null && window.length != audioWindowSize)
+            throw new IllegalArgumentException("Window has " + window.length + " coefficients, " + audioWindowSize + " required");
+        this.window = window;
+        return this;
+    }
+
+    /**
+     * @param preEmphasis coefficient a of the pre-emphasis filter y[n] = x[n] - a * x[n - 1], 0 to disable it
+     * @return this
+     */
+    @NotNull
+    FrameProcessor setPreEmphasis(float preEmphasis) {
+        this.preEmphasis = preEmphasis;
+        return this;
+    }
+
+    /**
+     * @return this
+     */
+    @NotNull
+    FrameProcessor setRemoveDcOffset(boolean removeDcOffset) {
+        this.removeDcOffset = removeDcOffset;
+        return this;
+    }
+
+    /**
+     * @return true if frames are pre-emphasized or have their dc offset removed before the window is applied
+     */
+    private boolean isConditioned() {
+        return preEmphasis != 0 || removeDcOffset;
+    }
+
+    /**
+     * Stores the power spectrum of the frame audio[offset + n], 0 <= n < audioWindowSize in out[outOffset + j]
+     *
+     * @param previous the sample before the frame, used by the pre-emphasis filter. 0 at the start of a signal.
+     * @return the sum of the powers of the frame
+     * @see Sonopy#powerSpec(float[], int, int, int)
+     */
+    float power(@NotNull float[] audio, int offset, float previous, @NotNull float[] out, int outOffset) {
+        if (!isConditioned())
+            return power(plan, audio, offset, audioWindowSize, window, real, imag, scratchReal, scratchImag, out, outOffset);
+        condition(audio, offset, previous);
+        return power(plan, frame, 1, frameLength, null, real, imag, scratchReal, scratchImag, out, outOffset);
+    }
+
+    /**
+     * Stores the conditioned and windowed samples (x[n] - a * x[n - 1] - m * (1 - a)) * window[n], 0 <= n < frameLength
+     * of the frame x[n] = audio[offset + n] in frame[1 + n], with x[-1] = previous, a the pre-emphasis coefficient
+     * and m the mean of the frame if the dc offset is removed, otherwise 0.
+     * This is the pre-emphasized frame after the mean was subtracted from the frame and its previous sample.<br>
+     * The samples are processed backwards, so audio may be the frame scratch buffer itself with offset 1.
+     */
+    private void condition(@NotNull float[] audio, int offset, float previous) {
+        final float a = preEmphasis;
+        float dcOffset = 0;
+        if (removeDcOffset) {
+            double sum = 0;
+            for (int n = 0; n < audioWindowSize; n++) {
+                sum += audio[offset + n];
+            }
+            dcOffset = (float) (sum / audioWindowSize) * (1 - a);
+        }
+        final float[] window = this.window, frame = this.frame;
+        for (int n = frameLength - 1; n >= 0; n--) {
+            float x = audio[offset + n] - a * (n == 0 ? previous : audio[offset + n - 1]) - dcOffset;
+            frame[1 + n] = window == null ? x : x * window[n];
+        }
+    }
+
+    /**
+     * Stores the power spectrum of the frame audio[offset + n], 0 <= n < length in out[outOffset + j].
+     * The frame is read in place and multiplied with the window while it is packed into the fft input,
+     * real and imag are scratch buffers for the fft output, scratchReal and scratchImag the scratch buffers of the plan.
+     *
+     * @param window coefficients multiplied with the frame, or null for a rectangular window
+     * @return the sum of the powers of the frame
+     * @see FFTPlan#scratchSize()
+     */
+    static float power(@NotNull FFTPlan plan, @NotNull float[] audio, int offset, int length, @Nullable float[] window,
+                       @NotNull float[] real, @NotNull float[] imag, @NotNull float[] scratchReal, @NotNull float[] scratchImag,
+                       @NotNull float[] out, int outOffset) {
+        plan.rfft(audio, offset, length, window, real, imag, scratchReal, scratchImag);
+        return Kernels.power(real, imag, plan.size() / 2 + 1, (float) plan.size(), out, outOffset);
+    }
+
+    /**
+     * Stores the log mel energies of the frame audio[offset + n], 0 <= n < audioWindowSize in out[outOffset + i]
+     *
+     * @return the sum of the powers of the frame
+     * @see Sonopy#melSpec(float[])
+     */
+    float mel(@NotNull float[] audio, int offset, float previous, @NotNull float[] out, int outOffset) {
+        float energy = power(audio, offset, previous, powers, 0);
+        filterbank.apply(powers, 0, out, outOffset);
+        logMethod.log(out, outOffset, filterbank.numFilters());
+        return energy;
+    }
+
+    /**
+     * Stores the mfccs of the frame audio[offset + n], 0 <= n < audioWindowSize in out[outOffset + k].
+     * The first coefficient is replaced by the log of the frame energy.
+     *
+     * @param dct transform of the log mel energies, determines the number of coefficients
+     * @see Sonopy#mfccSpec(float[], int)
+     */
+    void mfcc(@NotNull float[] audio, int offset, float previous, @NotNull DCTTransform dct, @NotNull float[] out, int outOffset) {
+        float energy = mel(audio, offset, previous, mels, 0);
+        dct.dct(mels, 0, out, outOffset);
+        if (dct.outputSize() > 0)
+            out[outOffset] = logMethod.log(energy);
+    }
+
+    /**
+     * {@link #mfcc(float[], int, float, DCTTransform, float[], int)} of a frame of raw samples.
+     * The samples are normalized while they are copied into the frame scratch buffer.
+     *
+     * @param audio raw samples, read with absolute indices
+     * @param start index of the first byte of the signal in audio, samples before it are not read
+     * @param byteIndex index of the first byte of the frame in audio
+     */
+    void mfcc(@NotNull ByteBuffer audio, int start, int byteIndex, @NotNull AudioEncoding encoding, @NotNull DCTTransform dct, @NotNull float[] out, int outOffset) {
+        mfcc(frame, 1, decode(audio, start, byteIndex, encoding), dct, out, outOffset);
+    }
+
+    /**
+     * {@link #mfcc(float[], int, float, DCTTransform, float[], int)} of a frame of 16 bit samples starting at audio[index]
+     *
+     * @param start index of the first sample of the signal in audio, samples before it are not read
+     */
+    void mfcc(@NotNull ShortBuffer audio, int start, int index, @NotNull DCTTransform dct, @NotNull float[] out, int outOffset) {
+        mfcc(frame, 1, decode(audio, start, index), dct, out, outOffset);
+    }
+
+    /**
+     * @return the number of samples of a frame that have to be decoded
+     */
+    private int decodeLength() {
+        return removeDcOffset ? audioWindowSize : frameLength;
+    }
+
+    /**
+     * Decodes the frame starting at audio[byteIndex] into frame[1 + n]
+     *
+     * @return the sample before the frame, 0 if there is none or it is not needed
+     */
+    private float decode(@NotNull ByteBuffer audio, int start, int byteIndex, @NotNull AudioEncoding encoding) {
+        int bytesPerSample = encoding.bytesPerSample();
+        if (preEmphasis != 0 && byteIndex - bytesPerSample >= start) {
+            encoding.decode(audio, byteIndex - bytesPerSample, frame, 0, decodeLength() + 1);
+            return frame[0];
+        }
+        encoding.decode(audio, byteIndex, frame, 1, decodeLength());
+        return 0;
+    }
+
+    /**
+     * Decodes the frame starting at audio[index] into frame[1 + n]
+     *
+     * @return the sample before the frame, 0 if there is none or it is not needed
+     */
+    private float decode(@NotNull ShortBuffer audio, int start, int index) {
+        if (preEmphasis != 0 && index > start) {
+            AudioEncoding.decode(audio, index - 1, frame, 0, decodeLength() + 1);
+            return frame[0];
+        }
+        AudioEncoding.decode(audio, index, frame, 1, decodeLength());
+        return 0;
+    }
+
+    /**
+     * {@link #mel(float[], int, float, float[], int)} writing the log mel energies to out[outIndex + i]
+     */
+    void mel(@NotNull float[] audio, int offset, float previous, @NotNull FloatBuffer out, int outIndex) {
+        int numFilters = filterbank.numFilters();
+        mel(audio, offset, previous, row, 0);
+        put(row, numFilters, out, outIndex);
+    }
+
+    /**
+     * {@link #mfcc(float[], int, float, DCTTransform, float[], int)} writing the mfccs to out[outIndex + k]
+     */
+    void mfcc(@NotNull float[] audio, int offset, float previous, @NotNull DCTTransform dct, @NotNull FloatBuffer out, int outIndex) {
+        float[] row = row(dct.outputSize());
+        mfcc(audio, offset, previous, dct, row, 0);
+        put(row, dct.outputSize(), out, outIndex);
+    }
+
+    /**
+     * {@link #mfcc(ByteBuffer, int, int, AudioEncoding, DCTTransform, float[], int)} writing the mfccs to out[outIndex + k]
+     */
+    void mfcc(@NotNull ByteBuffer audio, int start, int byteIndex, @NotNull AudioEncoding encoding, @NotNull DCTTransform dct, @NotNull FloatBuffer out, int outIndex) {
+        float[] row = row(dct.outputSize());
+        mfcc(audio, start, byteIndex, encoding, dct, row, 0);
+        put(row, dct.outputSize(), out, outIndex);
+    }
+
+    /**
+     * @return the row scratch buffer with at least length values
+     */
+    @NotNull
+    private float[] row(int length) {
+        if (row.length < length)
+            row = new float[length];
+        return row;
+    }
+
+    /**
+     * Copies row[0 <= n < length] to out[index + n] without touching the position of out,
+     * so workers can fill disjoint parts of the same buffer
+     */
+    private static void put(@NotNull float[] row, int length, @NotNull FloatBuffer out, int index) {
+        for (int n = 0; n < length; n++) {
+            out.put(index + n, row[n]);
+        }
+    }
+}
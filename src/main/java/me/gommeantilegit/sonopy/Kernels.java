@@ -0,0 +1,55 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Inner loops of the per frame pipeline.
+ * This is the Java 8 version, which uses the {@link ScalarKernels}. The multi release jar contains a version
+ * for Java 17+ that uses the jdk.incubator.vector module when it is available at runtime.
+ *
+ * @author GommeAntiLegit
+ */
+final class Kernels {
+
+    private Kernels() {
+    }
+
+    /**
+     * @return true if the kernels use SIMD instructions through the vector api
+     */
+    static boolean isVectorized() {
+        return false;
+    }
+
+    /**
+     * Stores out[outOffset + j] = (real[j]^2 + imag[j]^2) / fftSize for 0 <= j < length
+     *
+     * @return the sum of the stored powers
+     */
+    static float power(@NotNull float[] real, @NotNull float[] imag, int length, float fftSize, @NotNull float[] out, int outOffset) {
+        return ScalarKernels.power(real, imag, 0, length, fftSize, out, outOffset);
+    }
+
+    /**
+     * @return the inner product of a[aOffset + i] and b[bOffset + i], 0 <= i < length
+     */
+    static float dot(@NotNull float[] a, int aOffset, @NotNull float[] b, int bOffset, int length) {
+        return ScalarKernels.dot(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Replaces x[offset + i], 0 <= i < length with {@link Sonopy#safeLog(float)} of it
+     */
+    static void safeLog(@NotNull float[] x, int offset, int length) {
+        ScalarKernels.safeLog(x, offset, length);
+    }
+
+    /**
+     * Replaces x[offset + i], 0 <= i < length with the polynomial approximation of {@link Sonopy#safeLog(float)} of it
+     *
+     * @param coefficients polynomial coefficients of a {@link LogMethod}
+     */
+    static void polyLog(@NotNull float[] x, int offset, int length, @NotNull float[] coefficients) {
+        ScalarKernels.polyLog(x, offset, length, coefficients);
+    }
+}
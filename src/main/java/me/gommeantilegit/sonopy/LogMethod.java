@@ -0,0 +1,68 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Implementations of the natural logarithm applied to the mel energies and the frame energy.
+ * All methods keep the semantics of {@link Sonopy#safeLog(float)}: non positive inputs are replaced with {@code Math.ulp(1f)}.<br>
+ * The polynomial methods split x = 2^e * m with m in [2/3, 4/3) by manipulating the float bits and approximate
+ * log(x) = e * log(2) + log1p(m - 1) with a minimax polynomial. They are branch free apart from subnormal inputs,
+ * so they vectorize well, and their errors are absolute errors over all positive finite floats.
+ *
+ * @author GommeAntiLegit
+ * @see Sonopy#setLogMethod(LogMethod)
+ */
+public enum LogMethod {
+
+    /**
+     * {@link Math#log(double)} rounded to float
+     */
+    EXACT(null),
+
+    /**
+     * Degree 8 polynomial, maximum absolute error 8.5e-8 plus the float rounding of the result
+     * (8.0e-6 over all positive floats). Changes mfccs by less than 1e-5.
+     */
+    FAST(new float[]{
+            9.999992633e-01f, -4.999993344e-01f, 3.334211284e-01f, -2.500793171e-01f,
+            1.972081088e-01f, -1.641452041e-01f, 1.749288994e-01f, -1.539427175e-01f
+    }),
+
+    /**
+     * Degree 4 polynomial, maximum absolute error 7.9e-5 plus the float rounding of the result
+     * (8.8e-5 over all positive floats). Changes mfccs by less than 1e-3.
+     */
+    FASTER(new float[]{
+            9.991446146e-01f, -4.992834962e-01f, 3.635105873e-01f, -2.752528511e-01f
+    });
+
+    /**
+     * Coefficients c[k] of log1p(f) ~ f * (c[0] + c[1] * f + ... ), null for {@link #EXACT}
+     */
+    @Nullable
+    private final float[] coefficients;
+
+    LogMethod(@Nullable float[] coefficients) {
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * @return the logarithm of x, or of {@code Math.ulp(1f)} if x is not positive
+     */
+    float log(float x) {
+        float[] coefficients = this.coefficients;
+        return coefficients == null ? Sonopy.safeLog(x) : ScalarKernels.polyLog(x, coefficients);
+    }
+
+    /**
+     * Replaces x[offset + i], 0 <= i < length with {@link #log(float)} of it
+     */
+    void log(@NotNull float[] x, int offset, int length) {
+        float[] coefficients = this.coefficients;
+        if (coefficients == null)
+            Kernels.safeLog(x, offset, length);
+        else
+            Kernels.polyLog(x, offset, length, coefficients);
+    }
+}
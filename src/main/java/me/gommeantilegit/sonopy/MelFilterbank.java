@@ -0,0 +1,124 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Sparse representation of the triangular mel filters of {@link Sonopy#filterbanks(int, int, int)}.
+ * Each filter is stored as the index of its first non zero bin and the weights up to its last non zero bin,
+ * so projecting a power spectrum onto the filters only touches the bins covered by each triangle.<br>
+ * Instances are immutable and can be shared between threads.
+ *
+ * @author GommeAntiLegit
+ */
+public final class MelFilterbank {
+
+    /**
+     * Number of fft bins the filters are defined on
+     */
+    private final int fftLen;
+
+    /**
+     * startBins[i] is the index of the bin weighted by weights[i][0]
+     */
+    @NotNull
+    private final int[] startBins;
+
+    @NotNull
+    private final float[][] weights;
+
+    private MelFilterbank(int fftLen, @NotNull int[] startBins, @NotNull float[][] weights) {
+        this.fftLen = fftLen;
+        this.startBins = startBins;
+        this.weights = weights;
+    }
+
+    /**
+     * Creates the sparse form of {@link Sonopy#filterbanks(int, int, int)}
+     */
+    @NotNull
+    public static MelFilterbank create(int sampleRate, int numFilters, int fftLen) {
+        return sparse(Sonopy.filterbanks(sampleRate, numFilters, fftLen));
+    }
+
+    /**
+     * Converts a dense numFilters x fftLen filterbank matrix into its sparse form by dropping the leading
+     * and trailing zeros of each filter.
+     *
+     * @param banks filterbank matrix (tensor shape required)
+     */
+    @NotNull
+    public static MelFilterbank sparse(@NotNull float[][] banks) {
+        int fftLen = banks.length == 0 ? 0 : banks[0].length;
+        int[] startBins = new int[banks.length];
+        float[][] weights = new float[banks.length][];
+        for (int i = 0; i < banks.length; i++) {
+            float[] bank = banks[i];
+            int start = 0, end = bank.length;
+            while (start < end && bank[start] == 0)
+                start++;
+            while (end > start && bank[end - 1] == 0)
+                end--;
+            startBins[i] = start;
+            weights[i] = new float[end - start];
+            System.arraycopy(bank, start, weights[i], 0, end - start);
+        }
+        return new MelFilterbank(fftLen, startBins, weights);
+    }
+
+    /**
+     * @return number of filters
+     */
+    public int numFilters() {
+        return weights.length;
+    }
+
+    /**
+     * @return number of fft bins the filters are defined on
+     */
+    public int fftLen() {
+        return fftLen;
+    }
+
+    /**
+     * @return the dense numFilters x fftLen matrix as returned by {@link Sonopy#filterbanks(int, int, int)}
+     */
+    @NotNull
+    public float[][] toDense() {
+        float[][] banks = new float[weights.length][fftLen];
+        for (int i = 0; i < weights.length; i++) {
+            System.arraycopy(weights[i], 0, banks[i], startBins[i], weights[i].length);
+        }
+        return banks;
+    }
+
+    /**
+     * Projects a power spectrum onto the filters.
+     * Stores the inner product of power[powerOffset + j], 0 <= j < fftLen with filter i in mels[melOffset + i].
+     * Equal to a row of Sonopy.dot(powers, Sonopy.transpose(filterbanks)), but only the non zero weights are visited.
+     */
+    public void apply(@NotNull float[] power, int powerOffset, @NotNull float[] mels, int melOffset) {
+        final int[] startBins = this.startBins;
+        final float[][] weights = this.weights;
+        for (int i = 0; i < weights.length; i++) {
+            final float[] filter = weights[i];
+            mels[melOffset + i] = Kernels.dot(power, powerOffset + startBins[i], filter, 0, filter.length);
+        }
+    }
+
+    /**
+     * 2D version of {@link #apply(float[], int, float[], int)}.
+     * Projects every power spectrum powers[i] onto the filters.
+     *
+     * @return the numFrames x numFilters mel energies
+     */
+    @NotNull
+    public float[][] apply(@NotNull float[][] powers) {
+        float[][] mels = new float[powers.length][weights.length];
+        for (int i = 0; i < powers.length; i++) {
+            if (powers[i].length != fftLen)
+                throw new IllegalArgumentException("Power spectrum length " + powers[i].length + " does not match fftLen " + fftLen);
+            apply(powers[i], 0, mels[i], 0);
+        }
+        return mels;
+    }
+}
@@ -0,0 +1,358 @@
+/*
+OC Volume - Java Speech Recognition Engine
+Copyright (c) 2002-2004, OrangeCow organization
+All rights reserved.
+Redistribution and use in source and binary forms,
+with or without modification, are permitted provided
+that the following conditions are met:
+ * Redistributions of source code must retain the
+above copyright notice, this list of conditions
+and the following disclaimer.
+ * Redistributions in binary form must reproduce the
+above copyright notice, this list of conditions
+and the following disclaimer in the documentation
+and/or other materials provided with the
+distribution.
+ * Neither the name of the OrangeCow organization
+nor the names of its contributors may be used to
+endorse or promote products derived from this
+software without specific prior written
+permission.
+THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS
+AND CONTRIBUTORS "AS IS" AND ANY EXPRESS OR IMPLIED
+WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS
+FOR A PARTICULAR PURPOSE ARE DISCLAIMED. IN NO
+EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL,
+SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES
+(INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA,
+OR PROFITS; OR BUSINESS INTERRUPTION) HOWEVER
+CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING
+NEGLIGENCE OR OTHERWISE) ARISING IN ANY WAY OUT OF
+THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+POSSIBILITY OF SUCH DAMAGE.
+Contact information:
+Please visit http://ocvolume.sourceforge.net.
+ */
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Mixed radix Cooley-Tukey transform of sizes with the prime factors 2, 3 and 5, e.g. 400 or 480 point frames
+ * (25 ms at 16 kHz or 19.2 kHz) that would otherwise be zero padded to 512 points.<br>
+ * The size is factored into stages of radix 2, 4, 3 and 5. The input is sorted by a precomputed digit reversal
+ * permutation, then each stage combines radix sub DFTs of span / radix points into DFTs of span points
+ * with hard coded radix butterflies. The twiddle factors of each stage are stored in the order they are read.
+ * The radix-2 butterfly is the one of the original {@link FFT} implementation by Danny Su and Hanns Holger Rutz.
+ *
+ * @author Danny Su
+ * @author Hanns Holger Rutz
+ * @author GommeAntiLegit
+ */
+final class MixedRadixFFT implements ComplexFFT {
+
+    private static final float SIN_60 = (float) Math.sin(Math.PI / 3);
+
+    private static final float COS_72 = (float) Math.cos(2 * Math.PI / 5);
+    private static final float COS_144 = (float) Math.cos(4 * Math.PI / 5);
+    private static final float SIN_72 = (float) Math.sin(2 * Math.PI / 5);
+    private static final float SIN_144 = (float) Math.sin(4 * Math.PI / 5);
+
+    private final int numPoints;
+
+    /**
+     * Radix of each stage, the first stage combines single points
+     */
+    @NotNull
+    private final int[] radices;
+
+    /**
+     * Index of the first twiddle factor of each stage in twiddleReal and twiddleImag
+     */
+    @NotNull
+    private final int[] twiddleOffsets;
+
+    /**
+     * exp(-2 * pi * i * q * k / span) for 0 <= k < span / radix, 1 <= q < radix of each stage,
+     * stored at twiddleOffsets[stage] + k * (radix - 1) + q - 1
+     */
+    @NotNull
+    private final float[] twiddleReal, twiddleImag;
+
+    /**
+     * Cycles of the digit reversal permutation, stored flat as [length, i0, i1, ...].
+     * The value at i(j + 1) moves to i(j), the value at i0 to the last index of the cycle.
+     */
+    @NotNull
+    private final int[] cycles;
+
+    /**
+     * @param numPoints number of points, a product of the prime factors 2, 3 and 5
+     */
+    MixedRadixFFT(int numPoints) {
+        if (!supports(numPoints))
+            throw new IllegalArgumentException("numPoints must have no prime factors other than 2, 3 and 5, got " + numPoints);
+        this.numPoints = numPoints;
+        this.radices = factor(numPoints);
+
+        this.twiddleOffsets = new int[radices.length];
+        int numTwiddles = 0;
+        for (int stage = 0, span = 1; stage < radices.length; stage++) {
+            span *= radices[stage];
+            twiddleOffsets[stage] = numTwiddles;
+            numTwiddles += span - span / radices[stage];
+        }
+        this.twiddleReal = new float[numTwiddles];
+        this.twiddleImag = new float[numTwiddles];
+        for (int stage = 0, span = 1; stage < radices.length; stage++) {
+            int radix = radices[stage];
+            span *= radix;
+            for (int k = 0, i = twiddleOffsets[stage]; k < span / radix; k++) {
+                for (int q = 1; q < radix; q++, i++) {
+                    double angle = 2 * Math.PI * q * k / span;
+                    twiddleReal[i] = (float) Math.cos(angle);
+                    twiddleImag[i] = (float) -Math.sin(angle);
+                }
+            }
+        }
+        this.cycles = digitReversalCycles(numPoints, radices);
+    }
+
+    /**
+     * @return true if numPoints is positive and has no prime factors other than 2, 3 and 5
+     */
+    static boolean supports(int numPoints) {
+        if (numPoints < 1)
+            return false;
+        for (int prime : new int[]{2, 3, 5}) {
+            while (numPoints % prime == 0) {
+                numPoints /= prime;
+            }
+        }
+        return numPoints == 1;
+    }
+
+    /**
+     * @return the radices of the stages: a radix 2 stage if the size has an odd number of factors 2,
+     * as many radix 4 stages as possible and the factors 3 and 5.
+     * The radix 2 stage comes first, where all its twiddle factors are 1.
+     */
+    @NotNull
+    private static int[] factor(int numPoints) {
+        int[] factors = new int[32];
+        int numFactors = 0;
+        if (Integer.numberOfTrailingZeros(numPoints) % 2 != 0) {
+            factors[numFactors++] = 2;
+            numPoints /= 2;
+        }
+        for (int radix : new int[]{4, 3, 5}) {
+            while (numPoints % radix == 0) {
+                factors[numFactors++] = radix;
+                numPoints /= radix;
+            }
+        }
+        int[] radices = new int[numFactors];
+        System.arraycopy(factors, 0, radices, 0, numFactors);
+        return radices;
+    }
+
+    /**
+     * The last stage combines the sub DFTs of the decimated sequences x[n * radix + q] stored one after another,
+     * so input n moves to position (n % radix) * (numPoints / radix) + the position of n / radix in its sub DFT.
+     *
+     * @return the cycles of the permutation, see {@link #cycles}
+     */
+    @NotNull
+    private static int[] digitReversalCycles(int numPoints, @NotNull int[] radices) {
+        int[] source = new int[numPoints];
+        for (int n = 0; n < numPoints; n++) {
+            int position = 0, rest = n, size = numPoints;
+            for (int stage = radices.length - 1; stage >= 0; stage--) {
+                size /= radices[stage];
+                position += rest % radices[stage] * size;
+                rest /= radices[stage];
+            }
+            source[position] = n;
+        }
+        int[] cycles = new int[numPoints + numPoints / 2];
+        int length = 0;
+        boolean[] visited = new boolean[numPoints];
+        for (int start = 0; start < numPoints; start++) {
+            if (visited[start] || source[start] == start)
+                continue;
+            int lengthIndex = length++;
+            int i = start;
+            do {
+                visited[i] = true;
+                cycles[length++] = i;
+                i = source[i];
+            } while (i != start);
+            cycles[lengthIndex] = length - lengthIndex - 1;
+        }
+        int[] trimmed = new int[length];
+        System.arraycopy(cycles, 0, trimmed, 0, length);
+        return trimmed;
+    }
+
+    @Override
+    public int size() {
+        return numPoints;
+    }
+
+    @Override
+    public int workSize() {
+        return numPoints;
+    }
+
+    @Override
+    public void transform(@NotNull float[] real, @NotNull float[] imag) {
+        permute(real, imag);
+        for (int stage = 0, span = 1; stage < radices.length; stage++) {
+            int radix = radices[stage];
+            span *= radix;
+            int offset = twiddleOffsets[stage];
+            switch (radix) {
+                case 2:
+                    radix2(real, imag, span, offset);
+                    break;
+                case 3:
+                    radix3(real, imag, span, offset);
+                    break;
+                case 4:
+                    radix4(real, imag, span, offset);
+                    break;
+                default:
+                    radix5(real, imag, span, offset);
+                    break;
+            }
+        }
+    }
+
+    private void permute(@NotNull float[] real, @NotNull float[] imag) {
+        final int[] cycles = this.cycles;
+        for (int c = 0; c < cycles.length; ) {
+            int length = cycles[c++];
+            int end = c + length - 1;
+            float tempReal = real[cycles[c]];
+            float tempImag = imag[cycles[c]];
+            for (; c < end; c++) {
+                real[cycles[c]] = real[cycles[c + 1]];
+                imag[cycles[c]] = imag[cycles[c + 1]];
+            }
+            real[cycles[end]] = tempReal;
+            imag[cycles[end]] = tempImag;
+            c = end + 1;
+        }
+    }
+
+    /**
+     * y0 = x0 + x1, y1 = x0 - x1 with x1 = a[j + m] * w^k, j = block + k
+     */
+    private void radix2(@NotNull float[] real, @NotNull float[] imag, int span, int twiddleOffset) {
+        final int m = span >> 1;
+        for (int k = 0; k < m; k++) {
+            final float wr = twiddleReal[twiddleOffset + k], wi = twiddleImag[twiddleOffset + k];
+            for (int j = k; j < numPoints; j += span) {
+                int j1 = j + m;
+                float x1r = real[j1] * wr - imag[j1] * wi;
+                float x1i = real[j1] * wi + imag[j1] * wr;
+                real[j1] = real[j] - x1r;
+                imag[j1] = imag[j] - x1i;
+                real[j] += x1r;
+                imag[j] += x1i;
+            }
+        }
+    }
+
+    private void radix3(@NotNull float[] real, @NotNull float[] imag, int span, int twiddleOffset) {
+        final int m = span / 3;
+        for (int k = 0; k < m; k++) {
+            int t = twiddleOffset + 2 * k;
+            final float w1r = twiddleReal[t], w1i = twiddleImag[t];
+            final float w2r = twiddleReal[t + 1], w2i = twiddleImag[t + 1];
+            for (int j0 = k; j0 < numPoints; j0 += span) {
+                int j1 = j0 + m, j2 = j1 + m;
+                float x1r = real[j1] * w1r - imag[j1] * w1i, x1i = real[j1] * w1i + imag[j1] * w1r;
+                float x2r = real[j2] * w2r - imag[j2] * w2i, x2i = real[j2] * w2i + imag[j2] * w2r;
+                float sr = x1r + x2r, si = x1i + x2i;
+                // -i * sin(60) * (x1 - x2)
+                float dr = SIN_60 * (x1i - x2i), di = SIN_60 * (x2r - x1r);
+                float ar = real[j0] - 0.5f * sr, ai = imag[j0] - 0.5f * si;
+                real[j0] += sr;
+                imag[j0] += si;
+                real[j1] = ar + dr;
+                imag[j1] = ai + di;
+                real[j2] = ar - dr;
+                imag[j2] = ai - di;
+            }
+        }
+    }
+
+    private void radix4(@NotNull float[] real, @NotNull float[] imag, int span, int twiddleOffset) {
+        final int m = span >> 2;
+        for (int k = 0; k < m; k++) {
+            int t = twiddleOffset + 3 * k;
+            final float w1r = twiddleReal[t], w1i = twiddleImag[t];
+            final float w2r = twiddleReal[t + 1], w2i = twiddleImag[t + 1];
+            final float w3r = twiddleReal[t + 2], w3i = twiddleImag[t + 2];
+            for (int j0 = k; j0 < numPoints; j0 += span) {
+                int j1 = j0 + m, j2 = j1 + m, j3 = j2 + m;
+                float x0r = real[j0], x0i = imag[j0];
+                float x1r = real[j1] * w1r - imag[j1] * w1i, x1i = real[j1] * w1i + imag[j1] * w1r;
+                float x2r = real[j2] * w2r - imag[j2] * w2i, x2i = real[j2] * w2i + imag[j2] * w2r;
+                float x3r = real[j3] * w3r - imag[j3] * w3i, x3i = real[j3] * w3i + imag[j3] * w3r;
+                float s02r = x0r + x2r, s02i = x0i + x2i, d02r = x0r - x2r, d02i = x0i - x2i;
+                float s13r = x1r + x3r, s13i = x1i + x3i, d13r = x1r - x3r, d13i = x1i - x3i;
+                real[j0] = s02r + s13r;
+                imag[j0] = s02i + s13i;
+                real[j2] = s02r - s13r;
+                imag[j2] = s02i - s13i;
+                // y1 = d02 - i * d13, y3 = d02 + i * d13
+                real[j1] = d02r + d13i;
+                imag[j1] = d02i - d13r;
+                real[j3] = d02r - d13i;
+                imag[j3] = d02i + d13r;
+            }
+        }
+    }
+
+    private void radix5(@NotNull float[] real, @NotNull float[] imag, int span, int twiddleOffset) {
+        final int m = span / 5;
+        for (int k = 0; k < m; k++) {
+            int t = twiddleOffset + 4 * k;
+            final float w1r = twiddleReal[t], w1i = twiddleImag[t];
+            final float w2r = twiddleReal[t + 1], w2i = twiddleImag[t + 1];
+            final float w3r = twiddleReal[t + 2], w3i = twiddleImag[t + 2];
+            final float w4r = twiddleReal[t + 3], w4i = twiddleImag[t + 3];
+            for (int j0 = k; j0 < numPoints; j0 += span) {
+                int j1 = j0 + m, j2 = j1 + m, j3 = j2 + m, j4 = j3 + m;
+                float x0r = real[j0], x0i = imag[j0];
+                float x1r = real[j1] * w1r - imag[j1] * w1i, x1i = real[j1] * w1i + imag[j1] * w1r;
+                float x2r = real[j2] * w2r - imag[j2] * w2i, x2i = real[j2] * w2i + imag[j2] * w2r;
+                float x3r = real[j3] * w3r - imag[j3] * w3i, x3i = real[j3] * w3i + imag[j3] * w3r;
+                float x4r = real[j4] * w4r - imag[j4] * w4i, x4i = real[j4] * w4i + imag[j4] * w4r;
+                float s14r = x1r + x4r, s14i = x1i + x4i, d14r = x1r - x4r, d14i = x1i - x4i;
+                float s23r = x2r + x3r, s23i = x2i + x3i, d23r = x2r - x3r, d23i = x2i - x3i;
+                float a1r = x0r + COS_72 * s14r + COS_144 * s23r, a1i = x0i + COS_72 * s14i + COS_144 * s23i;
+                float a2r = x0r + COS_144 * s14r + COS_72 * s23r, a2i = x0i + COS_144 * s14i + COS_72 * s23i;
+                float b1r = SIN_72 * d14r + SIN_144 * d23r, b1i = SIN_72 * d14i + SIN_144 * d23i;
+                float b2r = SIN_144 * d14r - SIN_72 * d23r, b2i = SIN_144 * d14i - SIN_72 * d23i;
+                real[j0] = x0r + s14r + s23r;
+                imag[j0] = x0i + s14i + s23i;
+                // y1 = a1 - i * b1, y4 = a1 + i * b1, y2 = a2 - i * b2, y3 = a2 + i * b2
+                real[j1] = a1r + b1i;
+                imag[j1] = a1i - b1r;
+                real[j4] = a1r - b1i;
+                imag[j4] = a1i + b1r;
+                real[j2] = a2r + b2i;
+                imag[j2] = a2i - b2r;
+                real[j3] = a2r - b2i;
+                imag[j3] = a2i + b2r;
+            }
+        }
+    }
+}
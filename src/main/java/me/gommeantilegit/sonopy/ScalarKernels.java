@@ -0,0 +1,98 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Plain scalar implementations of the {@link Kernels}
+ *
+ * @author GommeAntiLegit
+ */
+final class ScalarKernels {
+
+    /**
+     * Value {@link Sonopy#safeLog(float)} replaces non positive inputs with
+     */
+    static final float LOG_FLOOR = Math.ulp(1f);
+
+    /**
+     * Bits of 2/3, the lower bound of the mantissa range of {@link #polyLog(float, float[])}
+     */
+    static final int TWO_THIRDS_BITS = 0x3f2aaaab;
+
+    /**
+     * Subnormal inputs are scaled by 2^SUBNORMAL_EXPONENT into the normal range before their bits are split
+     */
+    static final int SUBNORMAL_EXPONENT = 23;
+
+    static final float SUBNORMAL_SCALE = 1 << SUBNORMAL_EXPONENT;
+
+    static final float LN2 = (float) Math.log(2);
+
+    private ScalarKernels() {
+    }
+
+    /**
+     * {@link Kernels#power(float[], float[], int, float, float[], int)} of the bins from <= j < to
+     */
+    static float power(@NotNull float[] real, @NotNull float[] imag, int from, int to, float fftSize, @NotNull float[] out, int outOffset) {
+        float sum = 0;
+        for (int j = from; j < to; j++) {
+            float power = (real[j] * real[j] + imag[j] * imag[j]) / fftSize;
+            out[outOffset + j] = power;
+            sum += power;
+        }
+        return sum;
+    }
+
+    /**
+     * @see Kernels#dot(float[], int, float[], int, int)
+     */
+    static float dot(@NotNull float[] a, int aOffset, @NotNull float[] b, int bOffset, int length) {
+        float sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * @see Kernels#safeLog(float[], int, int)
+     */
+    static void safeLog(@NotNull float[] x, int offset, int length) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            x[i] = Sonopy.safeLog(x[i]);
+        }
+    }
+
+    /**
+     * @see Kernels#polyLog(float[], int, int, float[])
+     */
+    static void polyLog(@NotNull float[] x, int offset, int length, @NotNull float[] coefficients) {
+        for (int i = offset, end = offset + length; i < end; i++) {
+            x[i] = polyLog(x[i], coefficients);
+        }
+    }
+
+    /**
+     * @return the polynomial approximation of {@link Sonopy#safeLog(float)} of x described in {@link LogMethod}
+     */
+    static float polyLog(float x, @NotNull float[] coefficients) {
+        if (x <= 0)
+            x = LOG_FLOOR;
+        float exponent = 0;
+        if (x < Float.MIN_NORMAL) {
+            x *= SUBNORMAL_SCALE;
+            exponent = -SUBNORMAL_EXPONENT;
+        }
+        // x = 2^e * m with m in [2/3, 4/3)
+        int bits = Float.floatToRawIntBits(x);
+        int e = (bits - TWO_THIRDS_BITS) >> 23;
+        float f = Float.intBitsToFloat(bits - (e << 23)) - 1;
+        exponent += e;
+        float p = coefficients[coefficients.length - 1];
+        for (int k = coefficients.length - 2; k >= 0; k--) {
+            p = p * f + coefficients[k];
+        }
+        return exponent * LN2 + p * f;
+    }
+}
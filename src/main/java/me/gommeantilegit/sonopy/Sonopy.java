@@ -1,35 +1,241 @@
 package me.gommeantilegit.sonopy;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Java implementation of the me.gommeantilegit.sonopy.Sonopy audio feature extraction library
- * Can be used to run mycroft-precise models from Java Code
+ * Can be used to run mycroft-precise models from Java Code<br>
+ * The methods returning new arrays or matrices (e.g. {@link #mfccSpec(float[], int)} and {@link #melSpec(float[])})
+ * use their own scratch buffers per call and can be called by multiple threads concurrently, as long as the instance
+ * is not reconfigured at the same time.<br>
+ * The overloads writing into caller supplied buffers reuse scratch buffers owned by the instance, so that they do not allocate.
+ * They must not be called by multiple threads concurrently.
  *
  * @author GommeAntiLegit
  */
 public class Sonopy {
 
+    private final int sampleRate;
     private final int audioWindowSize;
     private final int audioWindowHop;
     private final int fftSize;
 
     /**
-     * Pre computed filterbanks. (Stored in instance with dependent parameters to avoid python @lru_cache() like behavior
+     * Pre computed filterbanks in sparse form. (Stored in instance with dependent parameters to avoid python @lru_cache() like behavior
      */
     @NotNull
-    private final float[][] filterbanks;
+    private final MelFilterbank filterbank;
+
+    @NotNull
+    private FFTPlan fftPlan;
+
+    /**
+     * Scratch space of the per frame pipeline of the overloads writing into caller supplied buffers
+     */
+    @NotNull
+    private FrameProcessor processor;
+
+    /**
+     * Transform of the overloads writing into caller supplied buffers, reused while dctMethod and numCoeffs stay the same
+     */
+    private DCTTransform dct;
+
+    /**
+     * Sliding normalization of the overloads writing into caller supplied buffers, reused while cmvn and numCoeffs stay the same
+     */
+    @Nullable
+    private Cmvn.Normalizer normalizer;
+
+    /**
+     * Implementation of the discrete cosine transform used by {@link #mfccSpec(float[], int)}
+     */
+    @NotNull
+    private DCT.Method dctMethod = DCT.Method.BASIS;
+
+    /**
+     * Logarithm applied to the mel energies and frame energies
+     */
+    @NotNull
+    private LogMethod logMethod = LogMethod.EXACT;
+
+    /**
+     * Coefficients multiplied with each frame, null for a rectangular window
+     */
+    @Nullable
+    private float[] window;
+
+    /**
+     * Coefficient of the pre-emphasis filter, 0 if disabled
+     */
+    private float preEmphasis;
+
+    /**
+     * True if the mean of each frame is subtracted from its samples
+     */
+    private boolean removeDcOffset;
+
+    /**
+     * Normalization of the mfccs, null if disabled
+     */
+    @Nullable
+    private Cmvn cmvn;
+
+    /**
+     * Pool the frames are processed on, null for sequential processing on the calling thread
+     */
+    @Nullable
+    private ForkJoinPool pool;
+
+    /**
+     * Minimum number of frames processed by a single parallel task
+     */
+    private static final int MIN_FRAMES_PER_TASK = 64;
+
+    /**
+     * Approximate size of the file regions {@link #mfccFile(WavFile, int, FeatureConsumer)} maps at once
+     */
+    private static final long MAPPED_BLOCK_BYTES = 64L << 20;
 
     public Sonopy(int sampleRate, int audioWindowSize, int audioWindowHop, int fftSize, int numFilters) {
+        this.sampleRate = sampleRate;
         this.audioWindowSize = audioWindowSize;
         this.audioWindowHop = audioWindowHop;
         this.fftSize = fftSize;
-        this.filterbanks = filterbanks(sampleRate, numFilters, fftSize / 2 + 1);
+        this.filterbank = TableCache.filterbank(sampleRate, numFilters, fftSize / 2 + 1);
+        this.fftPlan = TableCache.fftPlan(fftSize);
+        this.processor = new FrameProcessor(audioWindowSize, fftPlan, filterbank);
+    }
+
+    /**
+     * Sets the discrete cosine transform implementation used by {@link #mfccSpec(float[], int)}.
+     * Defaults to {@link DCT.Method#BASIS}
+     *
+     * @return this
+     */
+    @NotNull
+    public Sonopy setDctMethod(@NotNull DCT.Method dctMethod) {
+        this.dctMethod = dctMethod;
+        this.dct = null;
+        return this;
+    }
+
+    /**
+     * Sets the fft butterflies used by the instance methods and streams created afterwards.
+     * Defaults to {@link FFTPlan.Algorithm#RADIX_2}, {@link FFTPlan.Algorithm#RADIX_4} is faster and differs by rounding only.<br>
+     * Only affects an fftSize that is a power of two, other sizes always use the transforms described in {@link FFTPlan}.
+     *
+     * @return this
+     */
+    @NotNull
+    public Sonopy setFftAlgorithm(@NotNull FFTPlan.Algorithm algorithm) {
+        this.fftPlan = TableCache.fftPlan(fftSize, algorithm);
+        this.processor = newProcessor();
+        return this;
+    }
+
+    /**
+     * Sets the logarithm applied to the mel energies and frame energies by melSpec, mfccSpec and streams created afterwards.
+     * Defaults to {@link LogMethod#EXACT}, see {@link LogMethod} for the errors of the faster approximations.
+     *
+     * @return this
+     */
+    @NotNull
+    public Sonopy setLogMethod(@NotNull LogMethod logMethod) {
+        this.logMethod = logMethod;
+        this.processor.setLogMethod(logMethod);
+        return this;
+    }
+
+    /**
+     * Sets the window multiplied with each frame by the instance powerSpec, melSpec and mfccSpec methods and streams created afterwards.
+     * The window is applied while the frame is packed into the fft input, so it costs no extra pass over the audio.
+     * Defaults to a {@link WindowFunction#RECTANGULAR} window.<br>
+     * Kaldi uses symmetric windows ({@link WindowFunction#POVEY} by default), librosa uses a periodic {@link WindowFunction#HANN} window.
+     *
+     * @param periodic true for a periodic window, false for a symmetric one
+     * @return this
+     */
+    @NotNull
+    public Sonopy setWindow(@NotNull WindowFunction function, boolean periodic) {
+        this.window = function == WindowFunction.RECTANGULAR ? null : TableCache.sharedWindow(function, audioWindowSize, periodic);
+        this.processor.setWindow(window);
+        return this;
+    }
+
+    /**
+     * Sets the coefficient a of the pre-emphasis filter y[n] = x[n] - a * x[n - 1] that is applied to the signal,
+     * commonly 0.97. The filter is evaluated while each frame is loaded, so the audio is not copied.
+     * Frames read the sample before them, x[-1] = 0 at the start of a signal. Streams created afterwards keep
+     * the last sample across chunks, so their output still matches the whole signal.
+     * Defaults to 0, which disables the filter.
+     *
+     * @return this
+     * @throws IllegalArgumentException if preEmphasis is not in [0, 1]
+     */
+    @NotNull
+    public Sonopy setPreEmphasis(float preEmphasis) {
+        if (!(preEmphasis >= 0 && preEmphasis <= 1))
+            throw new IllegalArgumentException("preEmphasis must be in [0, 1], got " + preEmphasis);
+        this.preEmphasis = preEmphasis;
+        this.processor.setPreEmphasis(preEmphasis);
+        return this;
+    }
+
+    /**
+     * Enables the removal of the dc offset: the mean of each frame is subtracted from its samples before the
+     * pre-emphasis filter and the window are applied (in the same pass, as in Kaldi). Disabled by default.
+     *
+     * @return this
+     */
+    @NotNull
+    public Sonopy setRemoveDcOffset(boolean removeDcOffset) {
+        this.removeDcOffset = removeDcOffset;
+        this.processor.setRemoveDcOffset(removeDcOffset);
+        return this;
+    }
+
+    /**
+     * Sets the cepstral mean and variance normalization applied in place to the mfccs of the mfccSpec and mfccMatrix methods,
+     * each call (and each clip of a batch) being one utterance. Deltas are computed from the normalized mfccs.
+     * Streams created afterwards and {@link #mfccFile(WavFile, int, FeatureConsumer)} normalize each frame as it is computed,
+     * which requires a causal {@link Cmvn.Mode#GLOBAL} or {@link Cmvn.Mode#SLIDING} normalization.
+     * Disabled by default.
+     *
+     * @param cmvn the normalization, or null to disable it
+     * @return this
+     */
+    @NotNull
+    public Sonopy setCmvn(@Nullable Cmvn cmvn) {
+        this.cmvn = cmvn;
+        this.normalizer = null;
+        return this;
+    }
+
+    /**
+     * Enables parallel extraction: the frame range of powerSpec, melSpec and mfccSpec calls is split into chunks
+     * that are processed on the given pool, each with its own scratch buffers. The output is identical to the sequential path.
+     * Streams created by {@link #stream(int)} are not affected.
+     *
+     * @param pool the pool to process frames on, or null to process them sequentially on the calling thread (default)
+     * @return this
+     */
+    @NotNull
+    public Sonopy setForkJoinPool(@Nullable ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
     }
 
     /**
@@ -187,20 +393,18 @@ public class Sonopy {
     }
 
     /**
-     * Calculates power spectrogram
+     * Calculates power spectrogram.
+     * Frames are read as views of audio, only the fft works on a copy.
      */
     @NotNull
     public static float[][] powerSpec(@NotNull float[] audio, int audioWindowSize, int audioWindowHop, int fftSize) {
-        float[][] frames = chopArray(audio, audioWindowSize, audioWindowHop);
-        float[][] out = new float[frames.length][];
-        for (int i = 0; i < frames.length; i++) {
-            float[][] fftResult = FFT.rfft(frames[i], fftSize);
-            float[] real = fftResult[0], imag = fftResult[1];
-            assert real.length == imag.length;
-            out[i] = new float[real.length];
-            for (int j = 0; j < out[i].length; j++) {
-                out[i][j] = (real[j] * real[j] + imag[j] * imag[j]) / (float) fftSize;
-            }
+        int numFrames = numFrames(audio.length, audioWindowSize, audioWindowHop);
+        float[][] out = new float[numFrames][fftSize / 2 + 1];
+        FFTPlan plan = TableCache.fftPlan(fftSize);
+        float[] real = new float[fftSize / 2 + 1], imag = new float[fftSize / 2 + 1];
+        float[] scratchReal = new float[plan.scratchSize()], scratchImag = new float[plan.scratchSize()];
+        for (int i = 0; i < numFrames; i++) {
+            FrameProcessor.power(plan, audio, i * audioWindowHop, audioWindowSize, null, real, imag, scratchReal, scratchImag, out[i], 0);
         }
         return out;
     }
@@ -270,28 +474,692 @@ public class Sonopy {
         return transposed;
     }
 
+    /**
+     * @return the number of frames {@link #chopArray(float[], int, int)} splits an audio signal of audioLength samples into
+     */
+    static int numFrames(int audioLength, int audioWindowSize, int audioWindowHop) {
+        return audioLength < audioWindowSize ? 0 : (audioLength - audioWindowSize) / audioWindowHop + 1;
+    }
+
+    /**
+     * @return the number of frames an audio signal of audioLength samples is split into
+     */
+    public int numFrames(int audioLength) {
+        return numFrames(audioLength, audioWindowSize, audioWindowHop);
+    }
+
+    /**
+     * @return the number of values of a power spectrum (fftSize / 2 + 1)
+     */
+    public int numBins() {
+        return filterbank.fftLen();
+    }
+
+    /**
+     * @return the number of mel filters
+     */
+    public int numFilters() {
+        return filterbank.numFilters();
+    }
+
+    /**
+     * @return the cached transform for numCoeffs coefficients of the current dctMethod, only used with {@link #processor}
+     */
+    @NotNull
+    private DCTTransform dct(int numCoeffs) {
+        DCTTransform dct = this.dct;
+        if (dct == null || dct.outputSize() != numCoeffs) {
+            dct = dctMethod.create(filterbank.numFilters(), numCoeffs, true);
+            this.dct = dct;
+        }
+        return dct;
+    }
+
+    /**
+     * @return the cached normalizer for numCoeffs coefficients if cmvn is a sliding normalization, otherwise null.
+     * Only used with {@link #processor}
+     */
+    @Nullable
+    private Cmvn.Normalizer normalizer(int numCoeffs) {
+        Cmvn.Normalizer normalizer = this.normalizer;
+        if (normalizer == null || normalizer.numCoeffs() != numCoeffs) {
+            normalizer = newNormalizer(numCoeffs);
+            this.normalizer = normalizer;
+        }
+        return normalizer;
+    }
+
+    /**
+     * @return a normalizer for numCoeffs coefficients if cmvn is a sliding normalization, otherwise null
+     */
+    @Nullable
+    private Cmvn.Normalizer newNormalizer(int numCoeffs) {
+        return cmvn == null || cmvn.mode() != Cmvn.Mode.SLIDING ? null : cmvn.normalizer(numCoeffs);
+    }
+
+    /**
+     * @return a transform for numCoeffs coefficients of the current dctMethod with its own scratch buffers
+     */
+    @NotNull
+    private DCTTransform newDct(int numCoeffs) {
+        return dctMethod.create(filterbank.numFilters(), numCoeffs, true);
+    }
+
+    /**
+     * @return the sample before the frame starting at audio[frameStart] of the signal starting at audio[signalStart],
+     * 0 for the first frame
+     */
+    private static float previous(@NotNull float[] audio, int signalStart, int frameStart) {
+        return frameStart > signalStart ? audio[frameStart - 1] : 0;
+    }
+
+    /**
+     * Checks that out can hold numFrames rows of rowLength values with the given stride
+     */
+    private static void checkOutput(@NotNull float[] out, int outOffset, int stride, int numFrames, int rowLength) {
+        if (stride < rowLength)
+            throw new IllegalArgumentException("stride " + stride + " is smaller than the row length " + rowLength);
+        if (numFrames > 0 && (outOffset < 0 || outOffset + (long) (numFrames - 1) * stride + rowLength > out.length))
+            throw new IllegalArgumentException("Output buffer too small for " + numFrames + " rows of " + rowLength + " values");
+    }
+
+    /**
+     * Checks that out has numFrames rows of at least rowLength values
+     */
+    private static void checkOutput(@NotNull float[][] out, int numFrames, int rowLength) {
+        if (out.length < numFrames)
+            throw new IllegalArgumentException("Output has " + out.length + " rows, " + numFrames + " required");
+        for (int i = 0; i < numFrames; i++) {
+            if (out[i].length < rowLength)
+                throw new IllegalArgumentException("Output row " + i + " is shorter than " + rowLength);
+        }
+    }
+
+    /**
+     * Checks that out has room for numFrames rows of rowLength values after its position
+     */
+    private static void checkOutput(@NotNull FloatBuffer out, int numFrames, int rowLength) {
+        if (out.isReadOnly())
+            throw new IllegalArgumentException("Output buffer is read only");
+        if ((long) numFrames * rowLength > out.remaining())
+            throw new IllegalArgumentException("Output buffer too small for " + numFrames + " rows of " + rowLength + " values");
+    }
+
+    /**
+     * Processes the frames [from, to) with the given processor
+     */
+    private interface FrameRange {
+        void process(@NotNull FrameProcessor processor, int from, int to);
+    }
+
+    /**
+     * @return true if numFrames frames should be processed on the pool
+     */
+    private boolean isParallel(int numFrames) {
+        return pool != null && numFrames >= 2 * MIN_FRAMES_PER_TASK;
+    }
+
+    /**
+     * Processes numFrames frames on the pool, split into about four chunks per worker
+     */
+    private void processParallel(int numFrames, @NotNull FrameRange range) {
+        ForkJoinPool pool = this.pool;
+        assert pool != null;
+        int framesPerTask = Math.max(MIN_FRAMES_PER_TASK, numFrames / (4 * pool.getParallelism()));
+        pool.invoke(new FrameRangeTask(range, 0, numFrames, framesPerTask));
+    }
+
+    /**
+     * Recursively splits a frame range until it is small enough to be processed by one worker with its own scratch buffers
+     */
+    private final class FrameRangeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        @NotNull
+        private final FrameRange range;
+
+        private final int from, to, framesPerTask;
+
+        private FrameRangeTask(@NotNull FrameRange range, int from, int to, int framesPerTask) {
+            this.range = range;
+            this.from = from;
+            this.to = to;
+            this.framesPerTask = framesPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= framesPerTask) {
+                range.process(newProcessor(), from, to);
+            } else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new FrameRangeTask(range, from, middle, framesPerTask), new FrameRangeTask(range, middle, to, framesPerTask));
+            }
+        }
+    }
+
+    /**
+     * Calculates power spectrogram with the parameters of this instance into a flat row major buffer.
+     * Frame i is stored in out[outOffset + i * stride + j], 0 <= j < {@link #numBins()}
+     *
+     * @return the number of frames written
+     */
+    public int powerSpec(@NotNull float[] audio, @NotNull float[] out, int outOffset, int stride) {
+        return powerSpec(processor, audio, out, outOffset, stride);
+    }
+
+    private int powerSpec(@NotNull FrameProcessor processor, @NotNull float[] audio, @NotNull float[] out, int outOffset, int stride) {
+        int numFrames = numFrames(audio.length);
+        checkOutput(out, outOffset, stride, numFrames, numBins());
+        if (isParallel(numFrames))
+            processParallel(numFrames, (worker, from, to) -> powerSpec(worker, audio, out, outOffset, stride, from, to));
+        else
+            powerSpec(processor, audio, out, outOffset, stride, 0, numFrames);
+        return numFrames;
+    }
+
+    private void powerSpec(@NotNull FrameProcessor processor, @NotNull float[] audio, @NotNull float[] out, int outOffset, int stride, int from, int to) {
+        for (int i = from; i < to; i++) {
+            processor.power(audio, i * audioWindowHop, previous(audio, 0, i * audioWindowHop), out, outOffset + i * stride);
+        }
+    }
+
+    /**
+     * Calculates power spectrogram with the parameters of this instance into preallocated rows.
+     * out must have at least {@link #numFrames(int)} rows of at least {@link #numBins()} values.
+     *
+     * @return the number of frames written
+     */
+    public int powerSpec(@NotNull float[] audio, @NotNull float[][] out) {
+        int numFrames = numFrames(audio.length);
+        checkOutput(out, numFrames, numBins());
+        if (isParallel(numFrames))
+            processParallel(numFrames, (worker, from, to) -> powerSpec(worker, audio, out, from, to));
+        else
+            powerSpec(processor, audio, out, 0, numFrames);
+        return numFrames;
+    }
+
+    private void powerSpec(@NotNull FrameProcessor processor, @NotNull float[] audio, @NotNull float[][] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            processor.power(audio, i * audioWindowHop, previous(audio, 0, i * audioWindowHop), out[i], 0);
+        }
+    }
+
+    /**
+     * Calculates power spectrogram with the parameters of this instance as a dense numFrames x {@link #numBins()} matrix
+     */
+    @NotNull
+    public FeatureMatrix powerMatrix(@NotNull float[] audio) {
+        FeatureMatrix matrix = new FeatureMatrix(numFrames(audio.length), numBins());
+        powerSpec(newProcessor(), audio, matrix.data(), 0, matrix.stride());
+        return matrix;
+    }
+
     /**
      * Calculates mel frequency cepstrum coefficient spectrogram.
+     * Each frame is processed from fft to dct in cache resident scratch buffers and written straight into its output row.
      */
     @NotNull
     public float[][] mfccSpec(@NotNull float[] audio, int numCoeffs) {
-        float[][] powers = powerSpec(audio, audioWindowSize, audioWindowHop, fftSize);
-        if (powers.length == 0)
+        int numFrames = numFrames(audio.length);
+        if (numFrames == 0)
             throw new IllegalStateException("powers length 0");
+        float[][] mfccs = new float[numFrames][numCoeffs];
+        mfccSpec(newProcessor(), newDct(numCoeffs), null, audio, mfccs);
+        return mfccs;
+    }
+
+    /**
+     * Calculates mel frequency cepstrum coefficient spectrogram into a flat row major buffer.
+     * Frame i is stored in out[outOffset + i * stride + k], 0 <= k < numCoeffs
+     *
+     * @return the number of frames written
+     * @see #mfccSpec(float[], int)
+     */
+    public int mfccSpec(@NotNull float[] audio, int numCoeffs, @NotNull float[] out, int outOffset, int stride) {
+        return mfccSpec(audio, 0, audio.length, numCoeffs, out, outOffset, stride);
+    }
+
+    /**
+     * Calculates mel frequency cepstrum coefficient spectrogram as a dense numFrames x numCoeffs matrix
+     *
+     * @see #mfccSpec(float[], int)
+     */
+    @NotNull
+    public FeatureMatrix mfccMatrix(@NotNull float[] audio, int numCoeffs) {
+        FeatureMatrix matrix = new FeatureMatrix(numFrames(audio.length), numCoeffs);
+        mfccSpec(newProcessor(), newDct(numCoeffs), null, audio, 0, audio.length, matrix.data(), 0, matrix.stride());
+        return matrix;
+    }
+
+    /**
+     * Calculates mel frequency cepstrum coefficient spectrogram of audio[audioOffset + n], 0 <= n < audioLength
+     * into a flat row major buffer.
+     * Frame i is stored in out[outOffset + i * stride + k], 0 <= k < numCoeffs
+     *
+     * @return the number of frames written
+     * @see #mfccSpec(float[], int)
+     */
+    public int mfccSpec(@NotNull float[] audio, int audioOffset, int audioLength, int numCoeffs, @NotNull float[] out, int outOffset, int stride) {
+        return mfccSpec(processor, dct(numCoeffs), normalizer(numCoeffs), audio, audioOffset, audioLength, out, outOffset, stride);
+    }
 
-        assert fftSize / 2 + 1 == powers[0].length;
-        float[][] filtersTransposed = transpose(this.filterbanks);
-        float[][] powerFilterDot = dot(powers, filtersTransposed);
-        float[][] mels = safeLog(powerFilterDot);
-        float[][] mfccs = DCT.dct(mels, true);
-        for (int i = 0; i < mfccs.length; i++) {
-            mfccs[i] = Arrays.copyOfRange(mfccs[i], 0, numCoeffs);
+    /**
+     * {@link #mfccSpec(float[], int, int, int, float[], int, int)} with the given processor and dct, which determines numCoeffs
+     *
+     * @param sliding the normalizer of a sliding cmvn to reuse, or null to create one if needed
+     */
+    private int mfccSpec(@NotNull FrameProcessor processor, @NotNull DCTTransform dct, @Nullable Cmvn.Normalizer sliding, @NotNull float[] audio, int audioOffset, int audioLength,
+                         @NotNull float[] out, int outOffset, int stride) {
+        int numCoeffs = dct.outputSize();
+        if (audioOffset < 0 || audioLength < 0 || audioOffset + audioLength > audio.length)
+            throw new IllegalArgumentException("Audio range [" + audioOffset + ", " + (audioOffset + audioLength) + ") out of bounds");
+        int numFrames = numFrames(audioLength);
+        checkOutput(out, outOffset, stride, numFrames, numCoeffs);
+        if (isParallel(numFrames))
+            processParallel(numFrames, (worker, from, to) -> mfccSpec(worker, audio, audioOffset, workerDct(dct), out, outOffset, stride, from, to));
+        else
+            mfccSpec(processor, audio, audioOffset, dct, out, outOffset, stride, 0, numFrames);
+        if (cmvn != null)
+            cmvn.apply(out, outOffset, numFrames, numCoeffs, stride, sliding);
+        return numFrames;
+    }
+
+    private void mfccSpec(@NotNull FrameProcessor processor, @NotNull float[] audio, int audioOffset, @NotNull DCTTransform dct, @NotNull float[] out, int outOffset, int stride, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int frameStart = audioOffset + i * audioWindowHop;
+            processor.mfcc(audio, frameStart, previous(audio, audioOffset, frameStart), dct, out, outOffset + i * stride);
         }
-        float[] sumLog = safeLog(sum(powers));
-        for (float[] mfcc : mfccs) {
-            System.arraycopy(sumLog, 0, mfcc, 0, 1);
+    }
+
+    /**
+     * Calculates mel frequency cepstrum coefficient spectrogram extended by deltas into a flat row major buffer.
+     * Row i is stored in out[outOffset + i * stride + k], 0 <= k < deltas.rowLength(numCoeffs): the mfccs followed by
+     * their deltas. The deltas are computed in one pass over the rows right after the mfccs.
+     *
+     * @return the number of frames written
+     * @see Deltas
+     */
+    public int mfccSpec(@NotNull float[] audio, int numCoeffs, @NotNull Deltas deltas, @NotNull float[] out, int outOffset, int stride) {
+        return mfccSpec(processor, dct(numCoeffs), normalizer(numCoeffs), audio, deltas, out, outOffset, stride);
+    }
+
+    private int mfccSpec(@NotNull FrameProcessor processor, @NotNull DCTTransform dct, @Nullable Cmvn.Normalizer sliding, @NotNull float[] audio, @NotNull Deltas deltas,
+                         @NotNull float[] out, int outOffset, int stride) {
+        int numCoeffs = dct.outputSize();
+        checkOutput(out, outOffset, stride, numFrames(audio.length), deltas.rowLength(numCoeffs));
+        int numFrames = mfccSpec(processor, dct, sliding, audio, 0, audio.length, out, outOffset, stride);
+        deltas.apply(out, outOffset, numFrames, numCoeffs, stride);
+        return numFrames;
+    }
+
+    /**
+     * Calculates mel frequency cepstrum coefficient spectrogram extended by deltas
+     * as a dense numFrames x deltas.rowLength(numCoeffs) matrix
+     *
+     * @see #mfccSpec(float[], int, Deltas, float[], int, int)
+     */
+    @NotNull
+    public FeatureMatrix mfccMatrix(@NotNull float[] audio, int numCoeffs, @NotNull Deltas deltas) {
+        FeatureMatrix matrix = new FeatureMatrix(numFrames(audio.length), deltas.rowLength(numCoeffs));
+        mfccSpec(newProcessor(), newDct(numCoeffs), null, audio, deltas, matrix.data(), 0, matrix.stride());
+        return matrix;
+    }
+
+    /**
+     * Calculates mel frequency cepstrum coefficient spectrogram straight into a float buffer,
+     * typically a direct buffer that is handed to native code without copying the features.
+     * The frames are written as contiguous rows of numCoeffs values starting at the position of out,
+     * which is advanced past the last row.<br>
+     * Off-heap memory allocated through the foreign memory api can be filled through
+     * {@code segment.asByteBuffer().order(ByteOrder.nativeOrder()).asFloatBuffer()}.
+     *
+     * @return the number of frames written
+     * @throws IllegalArgumentException if out is read only or has less than numFrames * numCoeffs values remaining
+     * @see #mfccSpec(float[], int)
+     */
+    public int mfccSpec(@NotNull float[] audio, int numCoeffs, @NotNull FloatBuffer out) {
+        int numFrames = numFrames(audio.length);
+        checkOutput(out, numFrames, numCoeffs);
+        DCTTransform dct = dct(numCoeffs);
+        int outIndex = out.position();
+        if (isParallel(numFrames))
+            processParallel(numFrames, (worker, from, to) -> mfccSpec(worker, audio, workerDct(dct), out, outIndex, from, to));
+        else
+            mfccSpec(processor, audio, dct, out, outIndex, 0, numFrames);
+        out.position(outIndex + numFrames * numCoeffs);
+        if (cmvn != null)
+            cmvn.apply(out, outIndex, numFrames, numCoeffs, normalizer(numCoeffs));
+        return numFrames;
+    }
+
+    private void mfccSpec(@NotNull FrameProcessor processor, @NotNull float[] audio, @NotNull DCTTransform dct, @NotNull FloatBuffer out, int outIndex, int from, int to) {
+        int numCoeffs = dct.outputSize();
+        for (int i = from; i < to; i++) {
+            processor.mfcc(audio, i * audioWindowHop, previous(audio, 0, i * audioWindowHop), dct, out, outIndex + i * numCoeffs);
         }
-        return mfccs;
+    }
+
+    /**
+     * Calculates mel frequency cepstrum coefficient spectrogram of the remaining raw samples of a heap or direct buffer
+     * into a flat row major buffer. Samples are normalized while each frame is copied into the fft scratch buffer,
+     * so no float[] copy of the audio is created. The position of audio is not modified.
+     * Frame i is stored in out[outOffset + i * stride + k], 0 <= k < numCoeffs
+     *
+     * @param encoding sample format of audio
+     * @return the number of frames written
+     * @see #mfccSpec(float[], int)
+     */
+    public int mfccSpec(@NotNull ByteBuffer audio, @NotNull AudioEncoding encoding, int numCoeffs, @NotNull float[] out, int outOffset, int stride) {
+        return mfccSpec(processor, dct(numCoeffs), normalizer(numCoeffs), audio, encoding, out, outOffset, stride);
+    }
+
+    private int mfccSpec(@NotNull FrameProcessor processor, @NotNull DCTTransform dct, @Nullable Cmvn.Normalizer sliding, @NotNull ByteBuffer audio, @NotNull AudioEncoding encoding,
+                         @NotNull float[] out, int outOffset, int stride) {
+        int numCoeffs = dct.outputSize();
+        int numFrames = numFrames(audio.remaining() / encoding.bytesPerSample());
+        checkOutput(out, outOffset, stride, numFrames, numCoeffs);
+        int start = audio.position();
+        if (isParallel(numFrames))
+            processParallel(numFrames, (worker, from, to) -> mfccSpec(worker, audio, start, start, encoding, workerDct(dct), out, outOffset, stride, from, to));
+        else
+            mfccSpec(processor, audio, start, start, encoding, dct, out, outOffset, stride, 0, numFrames);
+        if (cmvn != null)
+            cmvn.apply(out, outOffset, numFrames, numCoeffs, stride, sliding);
+        return numFrames;
+    }
+
+    /**
+     * @param start index of the first byte of the signal in audio
+     * @param firstByte index of the first byte of the first frame in audio. Samples between start and firstByte are only read by the pre-emphasis filter.
+     */
+    private void mfccSpec(@NotNull FrameProcessor processor, @NotNull ByteBuffer audio, int start, int firstByte, @NotNull AudioEncoding encoding, @NotNull DCTTransform dct,
+                          @NotNull float[] out, int outOffset, int stride, int from, int to) {
+        int frameHopBytes = audioWindowHop * encoding.bytesPerSample();
+        for (int i = from; i < to; i++) {
+            processor.mfcc(audio, start, firstByte + i * frameHopBytes, encoding, dct, out, outOffset + i * stride);
+        }
+    }
+
+    /**
+     * Calculates mel frequency cepstrum coefficient spectrogram of the remaining raw samples of a buffer straight into a float buffer,
+     * so audio and features can both stay off-heap. The position of audio is not modified,
+     * the position of out is advanced past the last row.
+     *
+     * @return the number of frames written
+     * @see #mfccSpec(ByteBuffer, AudioEncoding, int, float[], int, int)
+     * @see #mfccSpec(float[], int, FloatBuffer)
+     */
+    public int mfccSpec(@NotNull ByteBuffer audio, @NotNull AudioEncoding encoding, int numCoeffs, @NotNull FloatBuffer out) {
+        int numFrames = numFrames(audio.remaining() / encoding.bytesPerSample());
+        checkOutput(out, numFrames, numCoeffs);
+        DCTTransform dct = dct(numCoeffs);
+        int start = audio.position();
+        int outIndex = out.position();
+        if (isParallel(numFrames))
+            processParallel(numFrames, (worker, from, to) -> mfccSpec(worker, audio, start, encoding, workerDct(dct), out, outIndex, from, to));
+        else
+            mfccSpec(processor, audio, start, encoding, dct, out, outIndex, 0, numFrames);
+        out.position(outIndex + numFrames * numCoeffs);
+        if (cmvn != null)
+            cmvn.apply(out, outIndex, numFrames, numCoeffs, normalizer(numCoeffs));
+        return numFrames;
+    }
+
+    private void mfccSpec(@NotNull FrameProcessor processor, @NotNull ByteBuffer audio, int start, @NotNull AudioEncoding encoding, @NotNull DCTTransform dct,
+                          @NotNull FloatBuffer out, int outIndex, int from, int to) {
+        int frameHopBytes = audioWindowHop * encoding.bytesPerSample();
+        int numCoeffs = dct.outputSize();
+        for (int i = from; i < to; i++) {
+            processor.mfcc(audio, start, start + i * frameHopBytes, encoding, dct, out, outIndex + i * numCoeffs);
+        }
+    }
+
+    /**
+     * Calculates mel frequency cepstrum coefficient spectrogram of the remaining raw samples of a buffer
+     * as a dense numFrames x numCoeffs matrix
+     *
+     * @see #mfccSpec(ByteBuffer, AudioEncoding, int, float[], int, int)
+     */
+    @NotNull
+    public FeatureMatrix mfccMatrix(@NotNull ByteBuffer audio, @NotNull AudioEncoding encoding, int numCoeffs) {
+        FeatureMatrix matrix = new FeatureMatrix(numFrames(audio.remaining() / encoding.bytesPerSample()), numCoeffs);
+        mfccSpec(newProcessor(), newDct(numCoeffs), null, audio, encoding, matrix.data(), 0, matrix.stride());
+        return matrix;
+    }
+
+    /**
+     * Calculates mel frequency cepstrum coefficient spectrogram of the remaining 16 bit samples of a heap or direct buffer
+     * into a flat row major buffer. Samples are normalized by 1 / 32768 while each frame is copied into the fft scratch buffer.
+     * The position of audio is not modified.
+     * Frame i is stored in out[outOffset + i * stride + k], 0 <= k < numCoeffs
+     *
+     * @return the number of frames written
+     * @see #mfccSpec(float[], int)
+     */
+    public int mfccSpec(@NotNull ShortBuffer audio, int numCoeffs, @NotNull float[] out, int outOffset, int stride) {
+        return mfccSpec(processor, dct(numCoeffs), normalizer(numCoeffs), audio, out, outOffset, stride);
+    }
+
+    private int mfccSpec(@NotNull FrameProcessor processor, @NotNull DCTTransform dct, @Nullable Cmvn.Normalizer sliding, @NotNull ShortBuffer audio,
+                         @NotNull float[] out, int outOffset, int stride) {
+        int numCoeffs = dct.outputSize();
+        int numFrames = numFrames(audio.remaining());
+        checkOutput(out, outOffset, stride, numFrames, numCoeffs);
+        int start = audio.position();
+        if (isParallel(numFrames))
+            processParallel(numFrames, (worker, from, to) -> mfccSpec(worker, audio, start, workerDct(dct), out, outOffset, stride, from, to));
+        else
+            mfccSpec(processor, audio, start, dct, out, outOffset, stride, 0, numFrames);
+        if (cmvn != null)
+            cmvn.apply(out, outOffset, numFrames, numCoeffs, stride, sliding);
+        return numFrames;
+    }
+
+    private void mfccSpec(@NotNull FrameProcessor processor, @NotNull ShortBuffer audio, int start, @NotNull DCTTransform dct, @NotNull float[] out, int outOffset, int stride, int from, int to) {
+        for (int i = from; i < to; i++) {
+            processor.mfcc(audio, start, start + i * audioWindowHop, dct, out, outOffset + i * stride);
+        }
+    }
+
+    /**
+     * Calculates mel frequency cepstrum coefficient spectrogram of the remaining 16 bit samples of a buffer
+     * as a dense numFrames x numCoeffs matrix
+     *
+     * @see #mfccSpec(ShortBuffer, int, float[], int, int)
+     */
+    @NotNull
+    public FeatureMatrix mfccMatrix(@NotNull ShortBuffer audio, int numCoeffs) {
+        FeatureMatrix matrix = new FeatureMatrix(numFrames(audio.remaining()), numCoeffs);
+        mfccSpec(newProcessor(), newDct(numCoeffs), null, audio, matrix.data(), 0, matrix.stride());
+        return matrix;
+    }
+
+    /**
+     * Calculates the mfccs of a WAV file.
+     * The file is memory mapped block by block and the frames are read straight from the mapping,
+     * so the heap usage does not depend on the file size.
+     *
+     * @param consumer receives the mfccs block by block, in order
+     * @return the number of frames
+     * @throws IllegalArgumentException if the sample rate of the file does not match the sample rate of this instance
+     */
+    public long mfccFile(@NotNull WavFile wav, int numCoeffs, @NotNull FeatureConsumer consumer) throws IOException {
+        return mfccFile(wav, numCoeffs, consumer, MAPPED_BLOCK_BYTES);
+    }
+
+    /**
+     * {@link #mfccFile(WavFile, int, FeatureConsumer)} mapping about mappedBlockBytes bytes at once, but at least one frame
+     */
+    long mfccFile(@NotNull WavFile wav, int numCoeffs, @NotNull FeatureConsumer consumer, long mappedBlockBytes) throws IOException {
+        if (wav.sampleRate() != sampleRate)
+            throw new IllegalArgumentException("Sample rate of file " + wav.sampleRate() + " does not match " + sampleRate);
+        long numFrames = wav.numSamples() < audioWindowSize ? 0 : (wav.numSamples() - audioWindowSize) / audioWindowHop + 1;
+        int bytesPerSample = wav.encoding().bytesPerSample();
+        int framesPerBlock = (int) Math.max(1, Math.min(numFrames, mappedBlockBytes / ((long) audioWindowHop * bytesPerSample)));
+        FeatureMatrix block = new FeatureMatrix(framesPerBlock, numCoeffs);
+        FrameProcessor processor = newProcessor();
+        DCTTransform dct = newDct(numCoeffs);
+        Cmvn.Normalizer normalizer = cmvn == null ? null : cmvn.normalizer(numCoeffs);
+        for (long firstFrame = 0; firstFrame < numFrames; firstFrame += framesPerBlock) {
+            int blockFrames = (int) Math.min(framesPerBlock, numFrames - firstFrame);
+            // blocks after the first also map the sample before their first frame for the pre-emphasis filter
+            int leading = firstFrame == 0 ? 0 : 1;
+            ByteBuffer mapped = wav.map(firstFrame * audioWindowHop - leading, leading + (blockFrames - 1) * audioWindowHop + audioWindowSize);
+            int firstByte = leading * bytesPerSample;
+            if (isParallel(blockFrames))
+                processParallel(blockFrames, (worker, from, to) -> mfccSpec(worker, mapped, 0, firstByte, wav.encoding(), workerDct(dct), block.data(), 0, numCoeffs, from, to));
+            else
+                mfccSpec(processor, mapped, 0, firstByte, wav.encoding(), dct, block.data(), 0, numCoeffs, 0, blockFrames);
+            if (normalizer != null) {
+                for (int i = 0; i < blockFrames; i++) {
+                    normalizer.normalize(block.data(), i * numCoeffs);
+                }
+            }
+            consumer.accept(firstFrame, blockFrames == framesPerBlock ? block : new FeatureMatrix(block.data(), 0, blockFrames, numCoeffs, numCoeffs));
+        }
+        return numFrames;
+    }
+
+    /**
+     * Opens a WAV file and calculates its mfccs
+     *
+     * @see #mfccFile(WavFile, int, FeatureConsumer)
+     */
+    public long mfccFile(@NotNull Path path, int numCoeffs, @NotNull FeatureConsumer consumer) throws IOException {
+        try (WavFile wav = WavFile.open(path)) {
+            return mfccFile(wav, numCoeffs, consumer);
+        }
+    }
+
+    /**
+     * Calculates the mfccs of many clips with one set of tables and scratch buffers.
+     *
+     * @param clips the audio clips. Clips shorter than a window yield no frames.
+     * @return the frames of all clips in one contiguous buffer
+     */
+    @NotNull
+    public FeatureBatch mfccBatch(@NotNull List<float[]> clips, int numCoeffs) {
+        int[] firstFrames = new int[clips.size() + 1];
+        for (int i = 0; i < clips.size(); i++) {
+            firstFrames[i + 1] = firstFrames[i] + numFrames(clips.get(i).length);
+        }
+        float[] data = new float[firstFrames[clips.size()] * numCoeffs];
+        FrameProcessor processor = newProcessor();
+        DCTTransform dct = newDct(numCoeffs);
+        Cmvn.Normalizer sliding = newNormalizer(numCoeffs);
+        for (int i = 0; i < clips.size(); i++) {
+            float[] clip = clips.get(i);
+            mfccSpec(processor, dct, sliding, clip, 0, clip.length, data, firstFrames[i] * numCoeffs, numCoeffs);
+        }
+        return new FeatureBatch(data, numCoeffs, firstFrames);
+    }
+
+    /**
+     * Calculates the mfccs of many clips packed into one buffer with one set of tables and scratch buffers.
+     *
+     * @param audio the packed clips
+     * @param clipOffsets clip i consists of audio[clipOffsets[i] <= n < clipOffsets[i + 1]]. Must be ascending.
+     * @return the frames of all clips in one contiguous buffer
+     */
+    @NotNull
+    public FeatureBatch mfccBatch(@NotNull float[] audio, @NotNull int[] clipOffsets, int numCoeffs) {
+        int numClips = Math.max(0, clipOffsets.length - 1);
+        int[] firstFrames = new int[numClips + 1];
+        for (int i = 0; i < numClips; i++) {
+            int clipLength = clipOffsets[i + 1] - clipOffsets[i];
+            if (clipLength < 0)
+                throw new IllegalArgumentException("clipOffsets must be ascending");
+            firstFrames[i + 1] = firstFrames[i] + numFrames(clipLength);
+        }
+        float[] data = new float[firstFrames[numClips] * numCoeffs];
+        FrameProcessor processor = newProcessor();
+        DCTTransform dct = newDct(numCoeffs);
+        Cmvn.Normalizer sliding = newNormalizer(numCoeffs);
+        for (int i = 0; i < numClips; i++) {
+            mfccSpec(processor, dct, sliding, audio, clipOffsets[i], clipOffsets[i + 1] - clipOffsets[i], data, firstFrames[i] * numCoeffs, numCoeffs);
+        }
+        return new FeatureBatch(data, numCoeffs, firstFrames);
+    }
+
+    /**
+     * Calculates mel frequency cepstrum coefficient spectrogram into preallocated rows.
+     * out must have at least {@link #numFrames(int)} rows of at least numCoeffs values.
+     *
+     * @return the number of frames written
+     * @see #mfccSpec(float[], int)
+     */
+    public int mfccSpec(@NotNull float[] audio, int numCoeffs, @NotNull float[][] out) {
+        return mfccSpec(processor, dct(numCoeffs), normalizer(numCoeffs), audio, out);
+    }
+
+    private int mfccSpec(@NotNull FrameProcessor processor, @NotNull DCTTransform dct, @Nullable Cmvn.Normalizer sliding, @NotNull float[] audio, @NotNull float[][] out) {
+        int numCoeffs = dct.outputSize();
+        int numFrames = numFrames(audio.length);
+        checkOutput(out, numFrames, numCoeffs);
+        if (isParallel(numFrames))
+            processParallel(numFrames, (worker, from, to) -> mfccSpec(worker, audio, workerDct(dct), out, from, to));
+        else
+            mfccSpec(processor, audio, dct, out, 0, numFrames);
+        if (cmvn != null)
+            cmvn.apply(out, numFrames, numCoeffs, sliding);
+        return numFrames;
+    }
+
+    private void mfccSpec(@NotNull FrameProcessor processor, @NotNull float[] audio, @NotNull DCTTransform dct, @NotNull float[][] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            processor.mfcc(audio, i * audioWindowHop, previous(audio, 0, i * audioWindowHop), dct, out[i], 0);
+        }
+    }
+
+    /**
+     * @return a processor with its own scratch buffers and the configuration of this instance
+     */
+    @NotNull
+    private FrameProcessor newProcessor() {
+        return new FrameProcessor(audioWindowSize, fftPlan, filterbank)
+                .setLogMethod(logMethod)
+                .setWindow(window)
+                .setPreEmphasis(preEmphasis)
+                .setRemoveDcOffset(removeDcOffset);
+    }
+
+    /**
+     * @return dct if it can be shared between workers, otherwise a new transform with its own scratch buffers
+     */
+    @NotNull
+    private DCTTransform workerDct(@NotNull DCTTransform dct) {
+        return dct instanceof FastDCT ? dctMethod.create(dct.inputSize(), dct.outputSize(), true) : dct;
+    }
+
+    /**
+     * Creates an incremental extractor of the mfccs of an audio stream with the parameters and dct method of this instance.
+     * The stream owns its scratch buffers and shares only immutable tables with this instance.
+     *
+     * @see SonopyStream
+     */
+    @NotNull
+    public SonopyStream stream(int numCoeffs) {
+        return stream(numCoeffs, null);
+    }
+
+    /**
+     * Creates an incremental extractor of the mfccs of an audio stream and their deltas.
+     * Frames are emitted {@link Deltas#latency()} frames late, the last frames are emitted by {@link SonopyStream#flush()}.
+     *
+     * @param deltas deltas appended to each row, or null for the mfccs only
+     * @throws IllegalStateException if a per utterance {@link Cmvn} is set, which cannot normalize frames incrementally
+     * @see #stream(int)
+     */
+    @NotNull
+    public SonopyStream stream(int numCoeffs, @Nullable Deltas deltas) {
+        return new SonopyStream(audioWindowSize, audioWindowHop,
+                newProcessor(),
+                dctMethod.create(filterbank.numFilters(), numCoeffs, true),
+                cmvn == null ? null : cmvn.normalizer(numCoeffs),
+                deltas);
     }
 
     /**
@@ -299,7 +1167,103 @@ public class Sonopy {
      */
     @NotNull
     public float[][] melSpec(@NotNull float[] audio) {
-        float[][] spec = powerSpec(audio, audioWindowSize, audioWindowHop, fftSize);
-        return safeLog(dot(spec, transpose(filterbanks)));
+        float[][] mels = new float[numFrames(audio.length)][numFilters()];
+        melSpec(newProcessor(), audio, mels);
+        return mels;
+    }
+
+    /**
+     * Calculates mel spectrogram as a dense numFrames x {@link #numFilters()} matrix
+     *
+     * @see #melSpec(float[])
+     */
+    @NotNull
+    public FeatureMatrix melMatrix(@NotNull float[] audio) {
+        FeatureMatrix matrix = new FeatureMatrix(numFrames(audio.length), numFilters());
+        melSpec(newProcessor(), audio, matrix.data(), 0, matrix.stride());
+        return matrix;
+    }
+
+    /**
+     * Calculates mel spectrogram into a flat row major buffer.
+     * Frame i is stored in out[outOffset + i * stride + j], 0 <= j < {@link #numFilters()}
+     *
+     * @return the number of frames written
+     * @see #melSpec(float[])
+     */
+    public int melSpec(@NotNull float[] audio, @NotNull float[] out, int outOffset, int stride) {
+        return melSpec(processor, audio, out, outOffset, stride);
+    }
+
+    private int melSpec(@NotNull FrameProcessor processor, @NotNull float[] audio, @NotNull float[] out, int outOffset, int stride) {
+        int numFrames = numFrames(audio.length);
+        checkOutput(out, outOffset, stride, numFrames, numFilters());
+        if (isParallel(numFrames))
+            processParallel(numFrames, (worker, from, to) -> melSpec(worker, audio, out, outOffset, stride, from, to));
+        else
+            melSpec(processor, audio, out, outOffset, stride, 0, numFrames);
+        return numFrames;
+    }
+
+    private void melSpec(@NotNull FrameProcessor processor, @NotNull float[] audio, @NotNull float[] out, int outOffset, int stride, int from, int to) {
+        for (int i = from; i < to; i++) {
+            processor.mel(audio, i * audioWindowHop, previous(audio, 0, i * audioWindowHop), out, outOffset + i * stride);
+        }
+    }
+
+    /**
+     * Calculates mel spectrogram straight into a float buffer.
+     * The frames are written as contiguous rows of {@link #numFilters()} values starting at the position of out,
+     * which is advanced past the last row.
+     *
+     * @return the number of frames written
+     * @see #melSpec(float[])
+     * @see #mfccSpec(float[], int, FloatBuffer)
+     */
+    public int melSpec(@NotNull float[] audio, @NotNull FloatBuffer out) {
+        int numFrames = numFrames(audio.length);
+        int numFilters = numFilters();
+        checkOutput(out, numFrames, numFilters);
+        int outIndex = out.position();
+        if (isParallel(numFrames))
+            processParallel(numFrames, (worker, from, to) -> melSpec(worker, audio, out, outIndex, from, to));
+        else
+            melSpec(processor, audio, out, outIndex, 0, numFrames);
+        out.position(outIndex + numFrames * numFilters);
+        return numFrames;
+    }
+
+    private void melSpec(@NotNull FrameProcessor processor, @NotNull float[] audio, @NotNull FloatBuffer out, int outIndex, int from, int to) {
+        int numFilters = numFilters();
+        for (int i = from; i < to; i++) {
+            processor.mel(audio, i * audioWindowHop, previous(audio, 0, i * audioWindowHop), out, outIndex + i * numFilters);
+        }
+    }
+
+    /**
+     * Calculates mel spectrogram into preallocated rows.
+     * out must have at least {@link #numFrames(int)} rows of at least {@link #numFilters()} values.
+     *
+     * @return the number of frames written
+     * @see #melSpec(float[])
+     */
+    public int melSpec(@NotNull float[] audio, @NotNull float[][] out) {
+        return melSpec(processor, audio, out);
+    }
+
+    private int melSpec(@NotNull FrameProcessor processor, @NotNull float[] audio, @NotNull float[][] out) {
+        int numFrames = numFrames(audio.length);
+        checkOutput(out, numFrames, numFilters());
+        if (isParallel(numFrames))
+            processParallel(numFrames, (worker, from, to) -> melSpec(worker, audio, out, from, to));
+        else
+            melSpec(processor, audio, out, 0, numFrames);
+        return numFrames;
+    }
+
+    private void melSpec(@NotNull FrameProcessor processor, @NotNull float[] audio, @NotNull float[][] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            processor.mel(audio, i * audioWindowHop, previous(audio, 0, i * audioWindowHop), out[i], 0);
+        }
     }
 }
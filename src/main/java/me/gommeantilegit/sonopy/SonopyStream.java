@@ -0,0 +1,325 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+
+/**
+ * Incremental mfcc extraction of an audio stream fed in chunks of arbitrary length.
+ * Samples that do not complete a frame yet are retained in a ring buffer until the next chunk arrives,
+ * and only the newly completed frames are computed, so every sample is transformed exactly once per frame it belongs to.<br>
+ * The emitted frames are equal to the rows of {@link Sonopy#mfccSpec(float[], int)} of the concatenated chunks.<br>
+ * Streams with {@link Deltas} emit a frame once the {@link Deltas#latency()} following frames are known
+ * and keep the last frames until the stream is ended by {@link #flush()}.
+ * Instances must not be used by multiple threads concurrently.
+ *
+ * @author GommeAntiLegit
+ * @see Sonopy#stream(int)
+ */
+public final class SonopyStream {
+
+    private final int audioWindowSize;
+    private final int audioWindowHop;
+
+    @NotNull
+    private final FrameProcessor processor;
+
+    @NotNull
+    private final DCTTransform dct;
+
+    /**
+     * Normalization of the mfccs of each frame, null if disabled
+     */
+    @Nullable
+    private final Cmvn.Normalizer normalizer;
+
+    @Nullable
+    private final Deltas deltas;
+
+    /**
+     * Ring buffer of the last rows of static features and deltas, row t is stored at {@link Deltas#row(int, int, int, long)}.
+     * Empty without deltas.
+     */
+    @NotNull
+    private final float[] rows;
+
+    /**
+     * Number of rows of the rows ring buffer
+     */
+    private final int numRows;
+
+    /**
+     * Number of samples the ring holds: a frame and the sample before it, which is read by the pre-emphasis filter
+     */
+    private final int capacity;
+
+    /**
+     * Ring buffer holding the last capacity samples. Every sample at ring position i is mirrored
+     * to i + capacity, so that the frame starting at any ring position is contiguous.
+     * Positions that have not been written since the last {@link #reset()} are 0.
+     */
+    @NotNull
+    private final float[] ring;
+
+    /**
+     * Ring position of the next sample. Once the ring is full, this is also the position of the oldest sample.
+     */
+    private int writePos;
+
+    /**
+     * Number of samples of the next frame already in the ring
+     */
+    private int buffered;
+
+    /**
+     * Number of samples to drop before the next frame starts (only if audioWindowHop > audioWindowSize)
+     */
+    private int skip;
+
+    /**
+     * Number of frames emitted since creation or the last {@link #reset()}
+     */
+    private long numFramesEmitted;
+
+    /**
+     * Number of frames whose static features were computed since creation or the last {@link #reset()}
+     */
+    private long numFramesComputed;
+
+    /**
+     * @param normalizer normalization of the mfccs, applied before the deltas are computed, or null
+     * @param deltas deltas appended to the emitted rows, or null for static features only
+     */
+    SonopyStream(int audioWindowSize, int audioWindowHop, @NotNull FrameProcessor processor, @NotNull DCTTransform dct,
+                 @Nullable Cmvn.Normalizer normalizer, @Nullable Deltas deltas) {
+        this.audioWindowSize = audioWindowSize;
+        this.audioWindowHop = audioWindowHop;
+        this.processor = processor;
+        this.dct = dct;
+        this.normalizer = normalizer;
+        this.deltas = deltas;
+        this.numRows = deltas == null ? 0 : 2 * deltas.latency() + 1;
+        this.rows = new float[numRows * rowLength()];
+        this.capacity = audioWindowSize + 1;
+        this.ring = new float[2 * capacity];
+    }
+
+    /**
+     * @return the number of coefficients of an emitted frame
+     */
+    public int numCoeffs() {
+        return dct.outputSize();
+    }
+
+    /**
+     * @return the number of values of an emitted row: the coefficients followed by their deltas, if any
+     */
+    public int rowLength() {
+        return deltas == null ? numCoeffs() : deltas.rowLength(numCoeffs());
+    }
+
+    /**
+     * @return the number of frames emitted since creation or the last {@link #reset()}
+     */
+    public long numFramesEmitted() {
+        return numFramesEmitted;
+    }
+
+    /**
+     * @return the number of frames the next call to process will emit for a chunk of numSamples samples
+     */
+    public int numFrames(int numSamples) {
+        long available = (long) buffered + numSamples - skip;
+        if (available < audioWindowSize)
+            return 0;
+        long numFrames = (available - audioWindowSize) / audioWindowHop + 1;
+        if (deltas == null)
+            return (int) numFrames;
+        int latency = deltas.latency();
+        return (int) (Math.max(0, numFramesComputed + numFrames - latency) - Math.max(0, numFramesComputed - latency));
+    }
+
+    /**
+     * @return the number of computed frames that are held back until their deltas are known, emitted by {@link #flush()}
+     */
+    public int numPendingFrames() {
+        return (int) (numFramesComputed - numFramesEmitted);
+    }
+
+    /**
+     * Discards all retained samples and pending frames. The next chunk is treated as the start of a new stream.
+     */
+    public void reset() {
+        Arrays.fill(ring, 0);
+        Arrays.fill(rows, 0);
+        writePos = 0;
+        buffered = 0;
+        skip = 0;
+        numFramesEmitted = 0;
+        numFramesComputed = 0;
+        if (normalizer != null)
+            normalizer.reset();
+    }
+
+    /**
+     * Feeds a chunk of audio and returns the mfccs of the frames it completes.
+     *
+     * @return numFrames(chunk.length) rows of {@link #rowLength()} values, possibly none
+     */
+    @NotNull
+    public float[][] process(@NotNull float[] chunk) {
+        float[][] out = new float[numFrames(chunk.length)][rowLength()];
+        process(chunk, 0, chunk.length, out, null, 0, 0);
+        return out;
+    }
+
+    /**
+     * Ends the stream: emits the pending frames, whose deltas are computed with the last frame repeated,
+     * and {@link #reset() resets} the stream for the next utterance.
+     *
+     * @return {@link #numPendingFrames()} rows of {@link #rowLength()} values, possibly none
+     */
+    @NotNull
+    public float[][] flush() {
+        float[][] out = new float[numPendingFrames()][rowLength()];
+        if (deltas != null) {
+            deltas.finish(rows, 0, rowLength(), numRows, numCoeffs(), numFramesComputed);
+            for (float[] row : out) {
+                emit(row, 0);
+            }
+        }
+        reset();
+        return out;
+    }
+
+    /**
+     * {@link #flush()} into a flat row major buffer, pending frame i is stored in out[outOffset + i * stride + k]
+     *
+     * @return the number of frames written
+     */
+    public int flush(@NotNull float[] out, int outOffset, int stride) {
+        int numFrames = numPendingFrames();
+        checkOutput(out, outOffset, stride, numFrames);
+        if (deltas != null) {
+            deltas.finish(rows, 0, rowLength(), numRows, numCoeffs(), numFramesComputed);
+            for (int frame = 0; frame < numFrames; frame++) {
+                emit(out, outOffset + frame * stride);
+            }
+        }
+        reset();
+        return numFrames;
+    }
+
+    private void checkOutput(@NotNull float[] out, int outOffset, int stride, int numFrames) {
+        if (stride < rowLength())
+            throw new IllegalArgumentException("stride " + stride + " is smaller than the row length " + rowLength());
+        if (numFrames > 0 && (outOffset < 0 || outOffset + (long) (numFrames - 1) * stride + rowLength() > out.length))
+            throw new IllegalArgumentException("Output buffer too small for " + numFrames + " frames");
+    }
+
+    /**
+     * Feeds chunk[offset + n], 0 <= n < length and writes the mfccs of the completed frames into a flat row major buffer.
+     * Frame i of this call is stored in out[outOffset + i * stride + k], 0 <= k < {@link #rowLength()}.
+     * out must have room for {@link #numFrames(int)} frames.
+     *
+     * @return the number of frames written
+     */
+    public int process(@NotNull float[] chunk, int offset, int length, @NotNull float[] out, int outOffset, int stride) {
+        checkOutput(out, outOffset, stride, numFrames(length));
+        return process(chunk, offset, length, null, out, outOffset, stride);
+    }
+
+    /**
+     * Feeds chunk[offset + n], 0 <= n < length. Frame i of this call is written to outRows[i] if outRows is not null,
+     * otherwise to out[outOffset + i * stride + k]
+     *
+     * @return the number of frames written
+     */
+    private int process(@NotNull float[] chunk, int offset, int length,
+                        @Nullable float[][] outRows, @Nullable float[] out, int outOffset, int stride) {
+        int frame = 0;
+        final int end = offset + length;
+        while (offset < end) {
+            if (skip > 0) {
+                int n = Math.min(skip, end - offset);
+                skip -= n;
+                offset += n;
+                // the last skipped sample precedes the next frame
+                if (skip == 0)
+                    write(chunk, offset - 1, 1);
+                continue;
+            }
+            int n = Math.min(audioWindowSize - buffered, end - offset);
+            write(chunk, offset, n);
+            offset += n;
+            buffered += n;
+            if (buffered == audioWindowSize) {
+                if (deltas == null || computeRow()) {
+                    if (outRows != null)
+                        emit(outRows[frame], 0);
+                    else
+                        emit(out, outOffset + frame * stride);
+                    frame++;
+                }
+                if (audioWindowHop <= audioWindowSize) {
+                    buffered -= audioWindowHop;
+                } else {
+                    buffered = 0;
+                    skip = audioWindowHop - audioWindowSize;
+                }
+            }
+        }
+        return frame;
+    }
+
+    /**
+     * Computes the frame held by the ring into its row of the rows ring buffer and the deltas that became known
+     *
+     * @return true if the oldest frame that was not emitted yet can be emitted
+     */
+    private boolean computeRow() {
+        int rowLength = rowLength();
+        int row = Deltas.row(0, rowLength, numRows, numFramesComputed);
+        // the frame is preceded by the oldest sample at writePos
+        processor.mfcc(ring, writePos + 1, ring[writePos], dct, rows, row);
+        if (normalizer != null)
+            normalizer.normalize(rows, row);
+        deltas.advance(rows, 0, rowLength, numRows, numCoeffs(), numFramesComputed);
+        numFramesComputed++;
+        return numFramesComputed > deltas.latency();
+    }
+
+    /**
+     * Writes the oldest frame that was not emitted yet to out[outOffset + k]. Without deltas this is the frame held by the ring,
+     * which is computed right away, otherwise its row is copied from the rows ring buffer.
+     */
+    private void emit(@NotNull float[] out, int outOffset) {
+        if (deltas == null) {
+            // the frame is preceded by the oldest sample at writePos
+            processor.mfcc(ring, writePos + 1, ring[writePos], dct, out, outOffset);
+            if (normalizer != null)
+                normalizer.normalize(out, outOffset);
+            numFramesComputed++;
+        } else {
+            int rowLength = rowLength();
+            System.arraycopy(rows, Deltas.row(0, rowLength, numRows, numFramesEmitted), out, outOffset, rowLength);
+        }
+        numFramesEmitted++;
+    }
+
+    /**
+     * Appends chunk[offset + n], 0 <= n < length to the ring and its mirror. length must not exceed capacity.
+     */
+    private void write(@NotNull float[] chunk, int offset, int length) {
+        int first = Math.min(length, capacity - writePos);
+        System.arraycopy(chunk, offset, ring, writePos, first);
+        System.arraycopy(chunk, offset, ring, writePos + capacity, first);
+        int second = length - first;
+        if (second > 0) {
+            System.arraycopy(chunk, offset + first, ring, 0, second);
+            System.arraycopy(chunk, offset + first, ring, capacity, second);
+        }
+        writePos = (writePos + length) % capacity;
+    }
+}
@@ -0,0 +1,216 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Global cache of the immutable tables used for feature extraction: mel filterbanks, fft plans, dct bases and windows.
+ * Tables are keyed by the parameters they are computed from, so all {@link Sonopy} instances with the same configuration
+ * share them across threads instead of recomputing them on construction.
+ * The cache holds at most {@link #maxSize()} tables and evicts the least recently used one when it is full.<br>
+ * All methods are thread-safe.
+ *
+ * @author GommeAntiLegit
+ */
+public final class TableCache {
+
+    /**
+     * Default value of {@link #maxSize()}
+     */
+    public static final int DEFAULT_MAX_SIZE = 64;
+
+    private static final Object LOCK = new Object();
+
+    /**
+     * Tables in access order, so the eldest entry is the least recently used one
+     */
+    @NotNull
+    private static final LinkedHashMap<Key, Object> TABLES = new LinkedHashMap<Key, Object>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+            return size() > maxSize;
+        }
+    };
+
+    private static int maxSize = DEFAULT_MAX_SIZE;
+
+    private static long hits, misses;
+
+    private TableCache() {
+    }
+
+    /**
+     * @return the cached sparse filterbank of {@link MelFilterbank#create(int, int, int)}
+     */
+    @NotNull
+    public static MelFilterbank filterbank(int sampleRate, int numFilters, int fftLen) {
+        return get(new Key(Key.FILTERBANK, sampleRate, numFilters, fftLen), () -> MelFilterbank.create(sampleRate, numFilters, fftLen));
+    }
+
+    /**
+     * @return the cached plan of {@link FFTPlan#FFTPlan(int)}
+     */
+    @NotNull
+    public static FFTPlan fftPlan(int numPoints) {
+        return fftPlan(numPoints, FFTPlan.Algorithm.RADIX_2);
+    }
+
+    /**
+     * @return the cached plan of {@link FFTPlan#FFTPlan(int, FFTPlan.Algorithm)}.
+     * Sizes that are not a power of two ignore the algorithm and share one plan.
+     */
+    @NotNull
+    public static FFTPlan fftPlan(int numPoints, @NotNull FFTPlan.Algorithm algorithm) {
+        FFTPlan.Algorithm used = FFTPlan.usedAlgorithm(numPoints, algorithm);
+        return get(new Key(Key.FFT_PLAN, numPoints, used.ordinal()), () -> new FFTPlan(numPoints, used));
+    }
+
+    /**
+     * @return the cached basis of {@link DCTBasis#DCTBasis(int, int, boolean)}
+     */
+    @NotNull
+    public static DCTBasis dctBasis(int size, int numCoeffs, boolean orthoNorm) {
+        return get(new Key(Key.DCT_BASIS, size, numCoeffs, orthoNorm ? 1 : 0), () -> new DCTBasis(size, numCoeffs, orthoNorm));
+    }
+
+    /**
+     * @return a copy of the cached coefficients of {@link WindowFunction#coefficients(int, boolean)}
+     */
+    @NotNull
+    public static float[] window(@NotNull WindowFunction function, int size, boolean periodic) {
+        return sharedWindow(function, size, periodic).clone();
+    }
+
+    /**
+     * @return the cached coefficients of {@link WindowFunction#coefficients(int, boolean)} shared by all callers. Must not be modified.
+     */
+    @NotNull
+    static float[] sharedWindow(@NotNull WindowFunction function, int size, boolean periodic) {
+        return get(new Key(Key.WINDOW, function.ordinal(), size, periodic ? 1 : 0), () -> function.coefficients(size, periodic));
+    }
+
+    /**
+     * Returns the table of key, creating it with factory on a miss.
+     * The table is created outside of the lock, so a slow computation does not block lookups of other tables.
+     * If two threads miss the same key concurrently, both compute it and the first one stored is returned to both.
+     */
+    @NotNull
+    @SuppressWarnings("unchecked")
+    private static <T> T get(@NotNull Key key, @NotNull Supplier<T> factory) {
+        synchronized (LOCK) {
+            Object table = TABLES.get(key);
+            if (table != null) {
+                hits++;
+                return (T) table;
+            }
+            misses++;
+        }
+        T created = factory.get();
+        synchronized (LOCK) {
+            Object table = TABLES.get(key);
+            if (table != null)
+                return (T) table;
+            TABLES.put(key, created);
+            return created;
+        }
+    }
+
+    /**
+     * @return the number of lookups that found their table in the cache
+     */
+    public static long hits() {
+        synchronized (LOCK) {
+            return hits;
+        }
+    }
+
+    /**
+     * @return the number of lookups that had to compute their table
+     */
+    public static long misses() {
+        synchronized (LOCK) {
+            return misses;
+        }
+    }
+
+    /**
+     * @return the number of cached tables
+     */
+    public static int size() {
+        synchronized (LOCK) {
+            return TABLES.size();
+        }
+    }
+
+    /**
+     * @return the maximum number of cached tables
+     */
+    public static int maxSize() {
+        synchronized (LOCK) {
+            return maxSize;
+        }
+    }
+
+    /**
+     * Sets the maximum number of cached tables, evicting the least recently used tables that exceed it.
+     * A size of 0 disables caching.
+     */
+    public static void setMaxSize(int maxSize) {
+        if (maxSize < 0)
+            throw new IllegalArgumentException("maxSize must not be negative, got " + maxSize);
+        synchronized (LOCK) {
+            TableCache.maxSize = maxSize;
+            Iterator<Key> eldest = TABLES.keySet().iterator();
+            while (TABLES.size() > maxSize) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Removes all tables and resets the hit and miss counters
+     */
+    public static void clear() {
+        synchronized (LOCK) {
+            TABLES.clear();
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    /**
+     * Type of a table and the parameters it is computed from
+     */
+    private static final class Key {
+
+        static final int FILTERBANK = 0, FFT_PLAN = 1, DCT_BASIS = 2, WINDOW = 3;
+
+        @NotNull
+        private final int[] parameters;
+
+        private final int hash;
+
+        Key(int... parameters) {
+            this.parameters = parameters;
+            this.hash = Arrays.hashCode(parameters);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && Arrays.equals(parameters, ((Key) o).parameters);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Mono WAV file whose samples are read through memory mappings of the data chunk, so the file is never loaded onto the heap.
+ * Supports 16 and 32 bit PCM as well as 32 bit float samples (also in WAVE_FORMAT_EXTENSIBLE files).
+ *
+ * @author GommeAntiLegit
+ * @see Sonopy#mfccFile(WavFile, int, FeatureConsumer)
+ */
+public final class WavFile implements Closeable {
+
+    private static final int WAVE_FORMAT_PCM = 1;
+    private static final int WAVE_FORMAT_IEEE_FLOAT = 3;
+    private static final int WAVE_FORMAT_EXTENSIBLE = 0xFFFE;
+
+    @NotNull
+    private final FileChannel channel;
+
+    private final int sampleRate;
+
+    @NotNull
+    private final AudioEncoding encoding;
+
+    /**
+     * Position of the first sample in the file
+     */
+    private final long dataOffset;
+
+    private final long numSamples;
+
+    private WavFile(@NotNull FileChannel channel, int sampleRate, @NotNull AudioEncoding encoding, long dataOffset, long numSamples) {
+        this.channel = channel;
+        this.sampleRate = sampleRate;
+        this.encoding = encoding;
+        this.dataOffset = dataOffset;
+        this.numSamples = numSamples;
+    }
+
+    /**
+     * Opens a WAV file and parses its RIFF header
+     *
+     * @throws IOException if the file cannot be read, is no WAV file or has an unsupported sample format
+     */
+    @NotNull
+    public static WavFile open(@NotNull Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return parse(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @NotNull
+    private static WavFile parse(@NotNull FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(12).order(ByteOrder.LITTLE_ENDIAN);
+        readFully(channel, header, 0);
+        if (header.getInt(0) != fourCC("RIFF") || header.getInt(8) != fourCC("WAVE"))
+            throw new IOException("Not a RIFF WAVE file");
+
+        ByteBuffer format = null;
+        long position = 12;
+        ByteBuffer chunkHeader = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        while (position + 8 <= channel.size()) {
+            chunkHeader.clear();
+            readFully(channel, chunkHeader, position);
+            int id = chunkHeader.getInt(0);
+            long size = chunkHeader.getInt(4) & 0xFFFFFFFFL;
+            position += 8;
+            if (id == fourCC("fmt ")) {
+                if (size < 16)
+                    throw new IOException("fmt chunk too small");
+                format = ByteBuffer.allocate((int) Math.min(size, 40)).order(ByteOrder.LITTLE_ENDIAN);
+                readFully(channel, format, position);
+            } else if (id == fourCC("data")) {
+                if (format == null)
+                    throw new IOException("data chunk before fmt chunk");
+                // streaming writers leave the size unset, use the rest of the file in that case
+                size = Math.min(size, channel.size() - position);
+                return create(channel, format, position, size);
+            }
+            position += size + (size & 1);
+        }
+        throw new IOException("No data chunk");
+    }
+
+    @NotNull
+    private static WavFile create(@NotNull FileChannel channel, @NotNull ByteBuffer format, long dataOffset, long dataSize) throws IOException {
+        int formatTag = format.getShort(0) & 0xFFFF;
+        int numChannels = format.getShort(2) & 0xFFFF;
+        int sampleRate = format.getInt(4);
+        int bitsPerSample = format.getShort(14) & 0xFFFF;
+        if (formatTag == WAVE_FORMAT_EXTENSIBLE) {
+            if (format.capacity() < 26)
+                throw new IOException("WAVE_FORMAT_EXTENSIBLE fmt chunk too small");
+            // the first two bytes of the sub format guid are the format tag
+            formatTag = format.getShort(24) & 0xFFFF;
+        }
+        if (numChannels != 1)
+            throw new IOException("Only mono files are supported, got " + numChannels + " channels");
+
+        AudioEncoding encoding;
+        if (formatTag == WAVE_FORMAT_PCM && bitsPerSample == 16)
+            encoding = AudioEncoding.PCM_16_LE;
+        else if (formatTag == WAVE_FORMAT_PCM && bitsPerSample == 32)
+            encoding = AudioEncoding.PCM_32_LE;
+        else if (formatTag == WAVE_FORMAT_IEEE_FLOAT && bitsPerSample == 32)
+            encoding = AudioEncoding.FLOAT_32_LE;
+        else
+            throw new IOException("Unsupported sample format " + formatTag + " with " + bitsPerSample + " bits per sample");
+        return new WavFile(channel, sampleRate, encoding, dataOffset, dataSize / encoding.bytesPerSample());
+    }
+
+    private static int fourCC(@NotNull String id) {
+        return id.charAt(0) | id.charAt(1) << 8 | id.charAt(2) << 16 | id.charAt(3) << 24;
+    }
+
+    private static void readFully(@NotNull FileChannel channel, @NotNull ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0)
+                throw new IOException("Unexpected end of file");
+        }
+    }
+
+    /**
+     * @return sample rate in hertz
+     */
+    public int sampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * @return sample format of the data chunk
+     */
+    @NotNull
+    public AudioEncoding encoding() {
+        return encoding;
+    }
+
+    /**
+     * @return number of samples in the file
+     */
+    public long numSamples() {
+        return numSamples;
+    }
+
+    /**
+     * Maps the samples [firstSample, firstSample + length) read only
+     */
+    @NotNull
+    ByteBuffer map(long firstSample, int length) throws IOException {
+        int bytesPerSample = encoding.bytesPerSample();
+        return channel.map(FileChannel.MapMode.READ_ONLY, dataOffset + firstSample * bytesPerSample, (long) length * bytesPerSample);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,80 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Window functions that are multiplied with each frame before its fft.
+ * The coefficients are computed once per frame size and shared through the {@link TableCache}.<br>
+ * Symmetric windows (scipy sym=True, Kaldi) divide by size - 1, periodic windows (librosa, scipy fftbins=True) by size.
+ *
+ * @author GommeAntiLegit
+ * @see Sonopy#setWindow(WindowFunction, boolean)
+ */
+public enum WindowFunction {
+
+    /**
+     * All ones, frames are transformed as they are
+     */
+    RECTANGULAR {
+        @Override
+        double value(double phase) {
+            return 1;
+        }
+    },
+
+    /**
+     * 0.5 - 0.5 * cos(phase)
+     */
+    HANN {
+        @Override
+        double value(double phase) {
+            return 0.5 - 0.5 * Math.cos(phase);
+        }
+    },
+
+    /**
+     * 0.54 - 0.46 * cos(phase)
+     */
+    HAMMING {
+        @Override
+        double value(double phase) {
+            return 0.54 - 0.46 * Math.cos(phase);
+        }
+    },
+
+    /**
+     * Kaldi's default window: the Hann window raised to the power of 0.85
+     */
+    POVEY {
+        @Override
+        double value(double phase) {
+            return Math.pow(0.5 - 0.5 * Math.cos(phase), 0.85);
+        }
+    };
+
+    /**
+     * @param phase 2 * pi * n / period of the sample n
+     * @return the window value at phase
+     */
+    abstract double value(double phase);
+
+    /**
+     * Computes the window coefficients of a frame.
+     * {@link TableCache#window(WindowFunction, int, boolean)} copies cached coefficients instead of computing them.
+     *
+     * @param size number of samples of a frame
+     * @param periodic true for the periodic window of period size, false for the symmetric window of period size - 1
+     * @return size coefficients
+     */
+    @NotNull
+    public float[] coefficients(int size, boolean periodic) {
+        if (size < 0)
+            throw new IllegalArgumentException("size must not be negative, got " + size);
+        float[] window = new float[size];
+        int period = periodic ? size : size - 1;
+        for (int n = 0; n < size; n++) {
+            window[n] = period == 0 ? 1 : (float) value(2 * Math.PI * n / period);
+        }
+        return window;
+    }
+}
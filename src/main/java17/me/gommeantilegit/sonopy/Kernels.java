@@ -0,0 +1,83 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Inner loops of the per frame pipeline.
+ * Java 17+ version of the multi release jar: uses the {@link VectorKernels} if the jdk.incubator.vector module
+ * is available at runtime (--add-modules jdk.incubator.vector) and falls back to the {@link ScalarKernels} otherwise.
+ * The vector kernels can be disabled with -Dsonopy.vector=false.
+ *
+ * @author GommeAntiLegit
+ */
+final class Kernels {
+
+    private static final boolean VECTORIZED = probe();
+
+    private Kernels() {
+    }
+
+    /**
+     * @return true if the vector api is usable and the preferred species holds more than one float
+     */
+    private static boolean probe() {
+        if (!Boolean.parseBoolean(System.getProperty("sonopy.vector", "true")))
+            return false;
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return false;
+        try {
+            return VectorKernels.SPECIES.length() > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return true if the kernels use SIMD instructions through the vector api
+     */
+    static boolean isVectorized() {
+        return VECTORIZED;
+    }
+
+    /**
+     * Stores out[outOffset + j] = (real[j]^2 + imag[j]^2) / fftSize for 0 <= j < length
+     *
+     * @return the sum of the stored powers
+     */
+    static float power(@NotNull float[] real, @NotNull float[] imag, int length, float fftSize, @NotNull float[] out, int outOffset) {
+        if (VECTORIZED)
+            return VectorKernels.power(real, imag, length, fftSize, out, outOffset);
+        return ScalarKernels.power(real, imag, 0, length, fftSize, out, outOffset);
+    }
+
+    /**
+     * @return the inner product of a[aOffset + i] and b[bOffset + i], 0 <= i < length
+     */
+    static float dot(@NotNull float[] a, int aOffset, @NotNull float[] b, int bOffset, int length) {
+        if (VECTORIZED)
+            return VectorKernels.dot(a, aOffset, b, bOffset, length);
+        return ScalarKernels.dot(a, aOffset, b, bOffset, length);
+    }
+
+    /**
+     * Replaces x[offset + i], 0 <= i < length with {@link Sonopy#safeLog(float)} of it
+     */
+    static void safeLog(@NotNull float[] x, int offset, int length) {
+        if (VECTORIZED)
+            VectorKernels.safeLog(x, offset, length);
+        else
+            ScalarKernels.safeLog(x, offset, length);
+    }
+
+    /**
+     * Replaces x[offset + i], 0 <= i < length with the polynomial approximation of {@link Sonopy#safeLog(float)} of it
+     *
+     * @param coefficients polynomial coefficients of a {@link LogMethod}
+     */
+    static void polyLog(@NotNull float[] x, int offset, int length, @NotNull float[] coefficients) {
+        if (VECTORIZED)
+            VectorKernels.polyLog(x, offset, length, coefficients);
+        else
+            ScalarKernels.polyLog(x, offset, length, coefficients);
+    }
+}
@@ -0,0 +1,83 @@
+package me.gommeantilegit.sonopy;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * {@link Kernels} implemented with the jdk.incubator.vector api on the widest species the cpu supports
+ * (e.g. 8 floats with AVX2, 16 with AVX-512). Remaining elements are processed by the {@link ScalarKernels}.<br>
+ * Reductions sum lane wise, so results may differ from the scalar kernels in the last bits.
+ *
+ * @author GommeAntiLegit
+ */
+final class VectorKernels {
+
+    static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    static float power(@NotNull float[] real, @NotNull float[] imag, int length, float fftSize, @NotNull float[] out, int outOffset) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int j = 0;
+        for (int bound = SPECIES.loopBound(length); j < bound; j += SPECIES.length()) {
+            FloatVector re = FloatVector.fromArray(SPECIES, real, j);
+            FloatVector im = FloatVector.fromArray(SPECIES, imag, j);
+            FloatVector power = re.mul(re).add(im.mul(im)).div(fftSize);
+            power.intoArray(out, outOffset + j);
+            sum = sum.add(power);
+        }
+        return sum.reduceLanes(VectorOperators.ADD)
+                + ScalarKernels.power(real, imag, j, length, fftSize, out, outOffset);
+    }
+
+    static float dot(@NotNull float[] a, int aOffset, @NotNull float[] b, int bOffset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            sum = va.fma(vb, sum);
+        }
+        return sum.reduceLanes(VectorOperators.ADD)
+                + ScalarKernels.dot(a, aOffset + i, b, bOffset + i, length - i);
+    }
+
+    static void safeLog(@NotNull float[] x, int offset, int length) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            FloatVector v = FloatVector.fromArray(SPECIES, x, offset + i);
+            VectorMask<Float> nonPositive = v.compare(VectorOperators.LE, 0f);
+            v.blend(ScalarKernels.LOG_FLOOR, nonPositive)
+                    .lanewise(VectorOperators.LOG)
+                    .intoArray(x, offset + i);
+        }
+        ScalarKernels.safeLog(x, offset + i, length - i);
+    }
+
+    static void polyLog(@NotNull float[] x, int offset, int length, @NotNull float[] coefficients) {
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            FloatVector v = FloatVector.fromArray(SPECIES, x, offset + i);
+            v = v.blend(ScalarKernels.LOG_FLOOR, v.compare(VectorOperators.LE, 0f));
+            VectorMask<Float> subnormal = v.compare(VectorOperators.LT, Float.MIN_NORMAL);
+            v = v.blend(v.mul(ScalarKernels.SUBNORMAL_SCALE), subnormal);
+            // x = 2^e * m with m in [2/3, 4/3)
+            IntVector bits = v.reinterpretAsInts();
+            IntVector e = bits.sub(ScalarKernels.TWO_THIRDS_BITS).lanewise(VectorOperators.ASHR, 23);
+            FloatVector f = bits.sub(e.lanewise(VectorOperators.LSHL, 23)).reinterpretAsFloats().sub(1f);
+            FloatVector exponent = (FloatVector) e.convert(VectorOperators.I2F, 0);
+            exponent = exponent.blend(exponent.sub(ScalarKernels.SUBNORMAL_EXPONENT), subnormal);
+            FloatVector p = FloatVector.broadcast(SPECIES, coefficients[coefficients.length - 1]);
+            for (int k = coefficients.length - 2; k >= 0; k--) {
+                p = p.fma(f, FloatVector.broadcast(SPECIES, coefficients[k]));
+            }
+            p.mul(f).add(exponent.mul(ScalarKernels.LN2)).intoArray(x, offset + i);
+        }
+        ScalarKernels.polyLog(x, offset + i, length - i, coefficients);
+    }
+}
@@ -0,0 +1,159 @@
+package me.gommeantilegit.sonopy;
+
+import com.sun.management.ThreadMXBean;
+import org.jetbrains.annotations.NotNull;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.IntConsumer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that extraction into caller supplied buffers does not allocate once the tables and scratch buffers exist
+ *
+ * @author GommeAntiLegit
+ */
+public class AllocationTest {
+
+    private static final int SAMPLE_RATE = 16000, WINDOW_SIZE = 400, WINDOW_HOP = 160, FFT_SIZE = 512, NUM_FILTERS = 40, NUM_COEFFS = 13;
+
+    private static final int WARMUP_CALLS = 2000, MEASURED_CALLS = 200;
+
+    /**
+     * Compilation may still be in progress after the warm up, an allocation of every call shows in every round though
+     */
+    private static final int ROUNDS = 20;
+
+    @Test
+    public void mfccSpecIntoBufferDoesNotAllocate() {
+        for (DCT.Method method : DCT.Method.values()) {
+            assertNoAllocations(new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, NUM_FILTERS).setDctMethod(method), method.name());
+        }
+    }
+
+    @Test
+    public void mfccSpecIntoBufferDoesNotAllocateWithFastLog() {
+        assertNoAllocations(new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, NUM_FILTERS).setLogMethod(LogMethod.FASTER), "FASTER log");
+    }
+
+    @Test
+    public void mfccSpecIntoBufferDoesNotAllocateForOtherFftSizes() {
+        // mixed radix, Bluestein and an even size whose half size transform is a Bluestein transform
+        for (int fftSize : new int[]{400, 401, 398}) {
+            assertNoAllocations(new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, fftSize, NUM_FILTERS), "fft size " + fftSize);
+        }
+        // the fft of the dct of 26 filters has 13 points
+        assertNoAllocations(new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, 26).setDctMethod(DCT.Method.FAST), "fast dct of 26 filters");
+    }
+
+    @Test
+    public void mfccSpecIntoBufferDoesNotAllocateWithCmvn() {
+        float[] mean = new float[NUM_COEFFS], variance = new float[NUM_COEFFS];
+        Arrays.fill(variance, 1);
+        for (Cmvn cmvn : new Cmvn[]{Cmvn.global(mean, variance), Cmvn.utterance(true), Cmvn.sliding(300, true)}) {
+            assertNoAllocations(new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, NUM_FILTERS).setCmvn(cmvn), cmvn.mode() + " cmvn");
+        }
+    }
+
+    @Test
+    public void mfccSpecOfRawSamplesDoesNotAllocate() {
+        Sonopy sonopy = new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, NUM_FILTERS);
+        float[] audio = noise(SAMPLE_RATE / 10);
+        float[] out = new float[sonopy.numFrames(audio.length) * NUM_COEFFS];
+        ByteBuffer heap = pcm16(audio, ByteBuffer.allocate(2 * audio.length).order(ByteOrder.LITTLE_ENDIAN));
+        ByteBuffer direct = pcm16(audio, ByteBuffer.allocateDirect(2 * audio.length).order(ByteOrder.LITTLE_ENDIAN));
+        // a big endian buffer of little endian samples is decoded with swapped bytes
+        ByteBuffer swapped = pcm16(audio, ByteBuffer.allocate(2 * audio.length).order(ByteOrder.LITTLE_ENDIAN)).order(ByteOrder.BIG_ENDIAN);
+        ShortBuffer shorts = heap.asShortBuffer();
+        assertNoAllocations(calls -> {
+            for (int i = 0; i < calls; i++) {
+                sonopy.mfccSpec(heap, AudioEncoding.PCM_16_LE, NUM_COEFFS, out, 0, NUM_COEFFS);
+            }
+        }, "PCM16 ByteBuffer");
+        assertNoAllocations(calls -> {
+            for (int i = 0; i < calls; i++) {
+                sonopy.mfccSpec(direct, AudioEncoding.PCM_16_LE, NUM_COEFFS, out, 0, NUM_COEFFS);
+            }
+        }, "direct PCM16 ByteBuffer");
+        assertNoAllocations(calls -> {
+            for (int i = 0; i < calls; i++) {
+                sonopy.mfccSpec(swapped, AudioEncoding.PCM_16_LE, NUM_COEFFS, out, 0, NUM_COEFFS);
+            }
+        }, "byte swapped PCM16 ByteBuffer");
+        assertNoAllocations(calls -> {
+            for (int i = 0; i < calls; i++) {
+                sonopy.mfccSpec(shorts, NUM_COEFFS, out, 0, NUM_COEFFS);
+            }
+        }, "ShortBuffer");
+    }
+
+    private static void assertNoAllocations(@NotNull Sonopy sonopy, @NotNull String configuration) {
+        float[] audio = noise(SAMPLE_RATE / 10);
+        float[] out = new float[sonopy.numFrames(audio.length) * NUM_COEFFS];
+        assertNoAllocations(calls -> {
+            for (int i = 0; i < calls; i++) {
+                sonopy.mfccSpec(audio, NUM_COEFFS, out, 0, NUM_COEFFS);
+            }
+        }, configuration);
+    }
+
+    /**
+     * @param calls makes the given number of calls. The loop is part of each lambda, so the calls are compiled
+     *              like in the loop of a caller and not behind one shared call site, which would inline them deeper.
+     */
+    private static void assertNoAllocations(@NotNull IntConsumer calls, @NotNull String configuration) {
+        ThreadMXBean threads = threadMXBean();
+        long thread = Thread.currentThread().getId();
+        calls.accept(WARMUP_CALLS);
+        // reading the counter may allocate itself, which an empty measurement accounts for
+        long before = threads.getThreadAllocatedBytes(thread);
+        long overhead = threads.getThreadAllocatedBytes(thread) - before;
+        long allocated = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS && allocated > 0; round++) {
+            before = threads.getThreadAllocatedBytes(thread);
+            calls.accept(MEASURED_CALLS);
+            allocated = Math.min(allocated, threads.getThreadAllocatedBytes(thread) - before - overhead);
+        }
+        assertEquals("bytes allocated by " + MEASURED_CALLS + " calls with " + configuration, 0, allocated);
+    }
+
+    @NotNull
+    private static ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(threads instanceof ThreadMXBean);
+        ThreadMXBean allocations = (ThreadMXBean) threads;
+        Assume.assumeTrue(allocations.isThreadAllocatedMemorySupported());
+        allocations.setThreadAllocatedMemoryEnabled(true);
+        return allocations;
+    }
+
+    /**
+     * Stores audio as little endian 16 bit samples in buffer
+     *
+     * @return buffer
+     */
+    @NotNull
+    private static ByteBuffer pcm16(@NotNull float[] audio, @NotNull ByteBuffer buffer) {
+        for (int i = 0; i < audio.length; i++) {
+            buffer.putShort(2 * i, (short) (audio[i] * 32767));
+        }
+        return buffer;
+    }
+
+    @NotNull
+    private static float[] noise(int length) {
+        Random random = new Random(42);
+        float[] audio = new float[length];
+        for (int i = 0; i < length; i++) {
+            audio[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        return audio;
+    }
+}
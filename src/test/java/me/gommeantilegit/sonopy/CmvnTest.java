@@ -0,0 +1,246 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Compares each {@link Cmvn} mode with naively computed statistics, applied to flat, jagged and FloatBuffer rows
+ *
+ * @author GommeAntiLegit
+ */
+public class CmvnTest {
+
+    private static final int NUM_FRAMES = 50, NUM_COEFFS = 5;
+
+    /**
+     * Coefficient 0 of the frames is constant, its variance is clamped to the floor
+     */
+    private static final float CONSTANT = 3;
+
+    private static final float TOLERANCE = 1e-4f;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void globalMatchesReference() {
+        float[][] frames = frames();
+        float[] mean = {1, 2, 3, 4, 5}, variance = {0.5f, 1, 2, 4, 8};
+        for (boolean normalizeVariance : new boolean[]{false, true}) {
+            float[][] expected = new float[NUM_FRAMES][NUM_COEFFS];
+            for (int t = 0; t < NUM_FRAMES; t++) {
+                for (int k = 0; k < NUM_COEFFS; k++) {
+                    expected[t][k] = (float) ((frames[t][k] - mean[k]) / (normalizeVariance ? Math.sqrt(variance[k]) : 1));
+                }
+            }
+            assertApply(Cmvn.global(mean, normalizeVariance ? variance : null), frames, expected);
+        }
+    }
+
+    @Test
+    public void utteranceMatchesReference() {
+        float[][] frames = frames();
+        for (boolean normalizeVariance : new boolean[]{false, true}) {
+            assertApply(Cmvn.utterance(normalizeVariance), frames, utterance(frames, normalizeVariance));
+        }
+    }
+
+    /**
+     * Windows shorter than the frames wrap around the history of the normalizer, longer ones never fill
+     */
+    @Test
+    public void slidingMatchesReference() {
+        float[][] frames = frames();
+        for (int window : new int[]{1, 7, NUM_FRAMES, 2 * NUM_FRAMES}) {
+            for (boolean normalizeVariance : new boolean[]{false, true}) {
+                assertApply(Cmvn.sliding(window, normalizeVariance), frames, reference(frames, window, normalizeVariance));
+            }
+        }
+    }
+
+    @Test
+    public void statsToGlobalMatchesUtterance() {
+        float[][] frames = frames();
+        int stride = NUM_COEFFS + 2;
+        float[] data = new float[NUM_FRAMES * stride];
+        for (int t = 0; t < NUM_FRAMES; t++) {
+            System.arraycopy(frames[t], 0, data, t * stride, NUM_COEFFS);
+        }
+        Cmvn.Stats stats = new Cmvn.Stats(NUM_COEFFS);
+        stats.add(data, 0, NUM_FRAMES / 2, stride);
+        for (int t = NUM_FRAMES / 2; t < NUM_FRAMES; t++) {
+            stats.add(frames[t], 0);
+        }
+        assertEquals(NUM_FRAMES, stats.numFrames());
+
+        double[] mean = new double[NUM_COEFFS], variance = new double[NUM_COEFFS];
+        for (int k = 0; k < NUM_COEFFS; k++) {
+            for (float[] frame : frames) {
+                mean[k] += frame[k] / (double) NUM_FRAMES;
+            }
+            for (float[] frame : frames) {
+                variance[k] += (frame[k] - mean[k]) * (frame[k] - mean[k]) / NUM_FRAMES;
+            }
+            assertEquals(mean[k], stats.mean()[k], TOLERANCE);
+            assertEquals(variance[k], stats.variance()[k], TOLERANCE);
+        }
+        for (boolean normalizeVariance : new boolean[]{false, true}) {
+            Cmvn global = stats.toGlobal(normalizeVariance);
+            assertEquals(Cmvn.Mode.GLOBAL, global.mode());
+            assertEquals(normalizeVariance, global.normalizesVariance());
+            assertApply(global, frames, utterance(frames, normalizeVariance));
+        }
+    }
+
+    @Test
+    public void emptyStatsHaveZeroVariance() {
+        Cmvn.Stats stats = new Cmvn.Stats(NUM_COEFFS);
+        assertArrayEquals(new float[NUM_COEFFS], stats.mean(), 0);
+        assertArrayEquals(new float[NUM_COEFFS], stats.variance(), 0);
+    }
+
+    @Test
+    public void utteranceCannotNormalizeStreams() {
+        Sonopy sonopy = new Sonopy(16000, 400, 160, 512, 26).setCmvn(Cmvn.utterance(true));
+        try {
+            sonopy.stream(13);
+            fail("stream with per utterance normalization");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test
+    public void utteranceCannotNormalizeFiles() throws IOException {
+        ByteBuffer wav = ByteBuffer.allocate(44 + 2 * 16000).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes("US-ASCII")).putInt(36 + 2 * 16000).put("WAVE".getBytes("US-ASCII"));
+        wav.put("fmt ".getBytes("US-ASCII")).putInt(16)
+                .putShort((short) 1).putShort((short) 1).putInt(16000).putInt(2 * 16000).putShort((short) 2).putShort((short) 16);
+        wav.put("data".getBytes("US-ASCII")).putInt(2 * 16000);
+        Path path = folder.newFile().toPath();
+        Files.write(path, wav.array());
+
+        Sonopy sonopy = new Sonopy(16000, 400, 160, 512, 26).setCmvn(Cmvn.utterance(false));
+        try {
+            sonopy.mfccFile(path, 13, (firstFrame, frames) -> fail("frames of a file with per utterance normalization"));
+            fail("file with per utterance normalization");
+        } catch (IllegalStateException expected) {
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void globalRejectsOtherNumberOfCoefficients() {
+        Cmvn.global(new float[NUM_COEFFS], null).apply(new float[NUM_FRAMES][NUM_COEFFS + 1], NUM_FRAMES, NUM_COEFFS + 1);
+    }
+
+    /**
+     * Normalizes copies of the frames in padded flat rows, in rows of a float[][] and in a FloatBuffer
+     * and compares each with expected
+     */
+    private static void assertApply(@NotNull Cmvn cmvn, @NotNull float[][] frames, @NotNull float[][] expected) {
+        String message = cmvn.mode() + " window " + cmvn.window() + (cmvn.normalizesVariance() ? " with variance" : " without variance");
+
+        int offset = 3, stride = NUM_COEFFS + 2;
+        float[] flat = new float[offset + NUM_FRAMES * stride];
+        for (int t = 0; t < NUM_FRAMES; t++) {
+            System.arraycopy(frames[t], 0, flat, offset + t * stride, NUM_COEFFS);
+        }
+        cmvn.apply(flat, offset, NUM_FRAMES, NUM_COEFFS, stride);
+
+        float[][] rows = new float[NUM_FRAMES][];
+        for (int t = 0; t < NUM_FRAMES; t++) {
+            rows[t] = frames[t].clone();
+        }
+        cmvn.apply(rows, NUM_FRAMES, NUM_COEFFS);
+
+        FloatBuffer buffer = FloatBuffer.allocate(offset + NUM_FRAMES * NUM_COEFFS);
+        for (int t = 0; t < NUM_FRAMES; t++) {
+            for (int k = 0; k < NUM_COEFFS; k++) {
+                buffer.put(offset + t * NUM_COEFFS + k, frames[t][k]);
+            }
+        }
+        cmvn.apply(buffer, offset, NUM_FRAMES, NUM_COEFFS);
+        assertEquals(0, buffer.position());
+
+        for (int t = 0; t < NUM_FRAMES; t++) {
+            for (int k = 0; k < NUM_COEFFS; k++) {
+                String value = message + ": coefficient " + k + " of frame " + t;
+                assertEquals(value + " of flat rows", expected[t][k], flat[offset + t * stride + k], TOLERANCE);
+                assertEquals(value + " of jagged rows", expected[t][k], rows[t][k], TOLERANCE);
+                assertEquals(value + " of a buffer", expected[t][k], buffer.get(offset + t * NUM_COEFFS + k), TOLERANCE);
+            }
+        }
+    }
+
+    /**
+     * @return the frames normalized with the mean and variance of all frames
+     */
+    @NotNull
+    private static float[][] utterance(@NotNull float[][] frames, boolean normalizeVariance) {
+        float[][] normalized = new float[NUM_FRAMES][];
+        for (int t = 0; t < NUM_FRAMES; t++) {
+            normalized[t] = normalize(frames, 0, NUM_FRAMES - 1, t, normalizeVariance);
+        }
+        return normalized;
+    }
+
+    /**
+     * @return the frames normalized with the mean and variance of the last window frames up to and including each frame
+     */
+    @NotNull
+    private static float[][] reference(@NotNull float[][] frames, int window, boolean normalizeVariance) {
+        float[][] normalized = new float[NUM_FRAMES][];
+        for (int t = 0; t < NUM_FRAMES; t++) {
+            normalized[t] = normalize(frames, Math.max(0, t - window + 1), t, t, normalizeVariance);
+        }
+        return normalized;
+    }
+
+    @NotNull
+    private static float[] normalize(@NotNull float[][] frames, int first, int last, int t, boolean normalizeVariance) {
+        float[] normalized = new float[NUM_COEFFS];
+        int count = last - first + 1;
+        for (int k = 0; k < NUM_COEFFS; k++) {
+            double mean = 0, variance = 0;
+            for (int i = first; i <= last; i++) {
+                mean += frames[i][k] / (double) count;
+            }
+            for (int i = first; i <= last; i++) {
+                variance += (frames[i][k] - mean) * (frames[i][k] - mean) / count;
+            }
+            double scale = normalizeVariance ? 1 / Math.sqrt(Math.max(variance, 1e-10)) : 1;
+            normalized[k] = (float) ((frames[t][k] - mean) * scale);
+        }
+        return normalized;
+    }
+
+    /**
+     * @return frames with a constant coefficient 0 and coefficients of different means and variances
+     */
+    @NotNull
+    private float[][] frames() {
+        float[][] frames = new float[NUM_FRAMES][NUM_COEFFS];
+        for (int t = 0; t < NUM_FRAMES; t++) {
+            frames[t][0] = CONSTANT;
+            for (int k = 1; k < NUM_COEFFS; k++) {
+                frames[t][k] = (float) (random.nextGaussian() * k + 10 * k);
+            }
+        }
+        return frames;
+    }
+}
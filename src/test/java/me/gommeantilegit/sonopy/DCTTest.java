@@ -0,0 +1,108 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Compares the {@link DCTTransform} implementations with the direct evaluation of {@link DCT#dct(float[], boolean)}
+ *
+ * @author GommeAntiLegit
+ */
+public class DCTTest {
+
+    /**
+     * Common numbers of mel filters, the input sizes of the transforms
+     */
+    private static final int[] SIZES = {20, 26, 40, 64};
+
+    /**
+     * Maximum error relative to the largest output of a transform
+     */
+    private static final float TOLERANCE = 1e-5f;
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void fastMatchesDirect() {
+        for (int size : SIZES) {
+            for (int numCoeffs : new int[]{1, 13, size}) {
+                for (boolean orthoNorm : new boolean[]{false, true}) {
+                    assertMatchesDirect(DCT.Method.FAST.create(size, numCoeffs, orthoNorm), size, numCoeffs, orthoNorm);
+                }
+            }
+        }
+    }
+
+    /**
+     * The cached basis computes the first numCoeffs outputs of the full transform
+     */
+    @Test
+    public void basisMatchesDct() {
+        for (int size : SIZES) {
+            for (int numCoeffs : new int[]{1, 13, size}) {
+                for (boolean orthoNorm : new boolean[]{false, true}) {
+                    DCTBasis basis = DCTBasis.of(size, numCoeffs, orthoNorm);
+                    assertSame(basis, DCTBasis.of(size, numCoeffs, orthoNorm));
+                    assertEquals(size, basis.inputSize());
+                    assertEquals(numCoeffs, basis.outputSize());
+                    float[] x = input(size);
+                    float[] expected = DCT.dct(x, orthoNorm), actual = new float[numCoeffs];
+                    basis.dct(x, 0, actual, 0);
+                    for (int k = 0; k < numCoeffs; k++) {
+                        assertEquals("coefficient " + k + " of " + numCoeffs + " of size " + size + (orthoNorm ? " ortho normalized" : ""),
+                                expected[k], actual[k], TOLERANCE * max(expected));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Transforms log mel energy like inputs at an offset into an output at an offset and compares them
+     * with the direct transform
+     */
+    private void assertMatchesDirect(@NotNull DCTTransform transform, int size, int numCoeffs, boolean orthoNorm) {
+        assertEquals(size, transform.inputSize());
+        assertEquals(numCoeffs, transform.outputSize());
+        DCTTransform direct = DCT.Method.DIRECT.create(size, numCoeffs, orthoNorm);
+        for (int i = 0; i < 10; i++) {
+            int xOffset = random.nextInt(5), yOffset = random.nextInt(5);
+            float[] x = new float[xOffset + size];
+            System.arraycopy(input(size), 0, x, xOffset, size);
+            float[] expected = new float[numCoeffs], actual = new float[yOffset + numCoeffs];
+            direct.dct(x, xOffset, expected, 0);
+            transform.dct(x, xOffset, actual, yOffset);
+
+            float max = max(expected);
+            for (int k = 0; k < numCoeffs; k++) {
+                assertEquals("coefficient " + k + " of " + numCoeffs + " of size " + size + (orthoNorm ? " ortho normalized" : ""),
+                        expected[k], actual[yOffset + k], TOLERANCE * max);
+            }
+        }
+    }
+
+    /**
+     * @return log mel energy like values
+     */
+    @NotNull
+    private float[] input(int size) {
+        float[] x = new float[size];
+        for (int n = 0; n < size; n++) {
+            x[n] = (float) (random.nextGaussian() * 3 - 5);
+        }
+        return x;
+    }
+
+    private static float max(@NotNull float[] y) {
+        float max = 0;
+        for (float value : y) {
+            max = Math.max(max, Math.abs(value));
+        }
+        return max;
+    }
+}
@@ -0,0 +1,207 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares {@link Deltas} with the regression of python_speech_features, which pads the features by repeating the edge frames
+ *
+ * @author GommeAntiLegit
+ */
+public class DeltasTest {
+
+    private static final int NUM_COEFFS = 13;
+
+    private static final float TOLERANCE = 1e-6f;
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void deltasMatchReference() {
+        for (int order = 1; order <= 2; order++) {
+            for (int window = 1; window <= 3; window++) {
+                assertMatchesReference(new Deltas(order, window), 50);
+            }
+        }
+    }
+
+    @Test
+    public void deltasOfFewerFramesThanTheWindowMatchReference() {
+        for (int order = 1; order <= 2; order++) {
+            for (int numFrames = 0; numFrames <= 4; numFrames++) {
+                assertMatchesReference(new Deltas(order, 4), numFrames);
+            }
+        }
+    }
+
+    /**
+     * The deltas of c[t] = t are 1 where the window fits, the repeated edge frames flatten them towards the edges
+     */
+    @Test
+    public void edgeFramesAreRepeated() {
+        Deltas deltas = new Deltas(2, 2);
+        int numFrames = 6, rowLength = deltas.rowLength(1);
+        float[] data = new float[numFrames * rowLength];
+        for (int t = 0; t < numFrames; t++) {
+            data[t * rowLength] = t;
+        }
+        deltas.apply(data, 0, numFrames, 1, rowLength);
+        float[] expectedDeltas = {0.5f, 0.8f, 1, 1, 0.8f, 0.5f};
+        for (int t = 0; t < numFrames; t++) {
+            assertEquals("delta of frame " + t, expectedDeltas[t], data[t * rowLength + 1], TOLERANCE);
+        }
+    }
+
+    /**
+     * Computes the deltas in a ring buffer of 2 * latency + 1 rows and emits each row once latency frames followed it
+     */
+    @Test
+    public void ringBufferMatchesReference() {
+        for (int order = 1; order <= 2; order++) {
+            for (int window = 1; window <= 3; window++) {
+                Deltas deltas = new Deltas(order, window);
+                for (int numFrames : new int[]{1, deltas.latency(), 2 * deltas.latency() + 1, 40}) {
+                    float[][] features = features(numFrames);
+                    float[][] expected = reference(features, deltas);
+                    int rowLength = deltas.rowLength(NUM_COEFFS), numRows = 2 * deltas.latency() + 1;
+                    float[] ring = new float[numRows * rowLength];
+                    int emitted = 0;
+                    for (int t = 0; t < numFrames; t++) {
+                        System.arraycopy(features[t], 0, ring, Deltas.row(0, rowLength, numRows, t), NUM_COEFFS);
+                        deltas.advance(ring, 0, rowLength, numRows, NUM_COEFFS, t);
+                        if (t >= deltas.latency())
+                            assertRow(expected, ring, rowLength, numRows, emitted++, deltas);
+                    }
+                    deltas.finish(ring, 0, rowLength, numRows, NUM_COEFFS, numFrames);
+                    while (emitted < numFrames) {
+                        assertRow(expected, ring, rowLength, numRows, emitted++, deltas);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void streamMatchesBatch() {
+        Sonopy sonopy = new Sonopy(16000, 400, 160, 512, 26);
+        float[] audio = new float[16000];
+        for (int i = 0; i < audio.length; i++) {
+            audio[i] = (float) random.nextGaussian() * 0.1f;
+        }
+        for (int order = 1; order <= 2; order++) {
+            Deltas deltas = new Deltas(order, 2);
+            int numFrames = sonopy.numFrames(audio.length), rowLength = deltas.rowLength(NUM_COEFFS);
+            float[] expected = new float[numFrames * rowLength];
+            sonopy.mfccSpec(audio, NUM_COEFFS, deltas, expected, 0, rowLength);
+
+            SonopyStream stream = sonopy.stream(NUM_COEFFS, deltas);
+            float[] actual = new float[numFrames * rowLength];
+            int frame = 0;
+            for (int offset = 0; offset < audio.length; ) {
+                int length = Math.min(random.nextInt(1000), audio.length - offset);
+                frame += stream.process(audio, offset, length, actual, frame * rowLength, rowLength);
+                offset += length;
+                assertEquals(Math.min(deltas.latency(), sonopy.numFrames(offset)), stream.numPendingFrames());
+            }
+            frame += stream.flush(actual, frame * rowLength, rowLength);
+            assertEquals(numFrames, frame);
+            assertArrayEquals(expected, actual, TOLERANCE);
+        }
+    }
+
+    /**
+     * Compares {@link Deltas#apply(float[], int, int, int, int)} of random features in padded rows with the reference
+     */
+    private void assertMatchesReference(@NotNull Deltas deltas, int numFrames) {
+        float[][] features = features(numFrames);
+        float[][] expected = reference(features, deltas);
+        int rowLength = deltas.rowLength(NUM_COEFFS), stride = rowLength + 3, offset = 5;
+        float[] data = new float[offset + numFrames * stride];
+        for (int t = 0; t < numFrames; t++) {
+            System.arraycopy(features[t], 0, data, offset + t * stride, NUM_COEFFS);
+        }
+        deltas.apply(data, offset, numFrames, NUM_COEFFS, stride);
+        for (int t = 0; t < numFrames; t++) {
+            float[] row = new float[rowLength];
+            System.arraycopy(data, offset + t * stride, row, 0, rowLength);
+            assertArrayEquals("frame " + t + " of " + numFrames + " with order " + deltas.order() + " and window " + deltas.window(),
+                    expected[t], row, TOLERANCE);
+        }
+    }
+
+    private static void assertRow(@NotNull float[][] expected, @NotNull float[] ring, int rowLength, int numRows, int t, @NotNull Deltas deltas) {
+        float[] row = new float[rowLength];
+        System.arraycopy(ring, Deltas.row(0, rowLength, numRows, t), row, 0, rowLength);
+        assertArrayEquals("frame " + t + " of " + expected.length + " with order " + deltas.order() + " and window " + deltas.window(),
+                expected[t], row, TOLERANCE);
+    }
+
+    /**
+     * @return rows of the features followed by their deltas and delta-deltas, computed like python_speech_features.delta
+     */
+    @NotNull
+    private static float[][] reference(@NotNull float[][] features, @NotNull Deltas deltas) {
+        int numFrames = features.length;
+        float[][] rows = new float[numFrames][deltas.rowLength(NUM_COEFFS)];
+        double[][] current = new double[numFrames][NUM_COEFFS];
+        for (int t = 0; t < numFrames; t++) {
+            for (int k = 0; k < NUM_COEFFS; k++) {
+                rows[t][k] = features[t][k];
+                current[t][k] = features[t][k];
+            }
+        }
+        for (int order = 1; order <= deltas.order(); order++) {
+            current = delta(current, deltas.window());
+            for (int t = 0; t < numFrames; t++) {
+                for (int k = 0; k < NUM_COEFFS; k++) {
+                    rows[t][order * NUM_COEFFS + k] = (float) current[t][k];
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * d[t] = sum(n * (c[t + n] - c[t - n]), 1 <= n <= N) / (2 * sum(n^2, 1 <= n <= N)) of the features padded with N copies
+     * of the first and last frame
+     */
+    @NotNull
+    private static double[][] delta(@NotNull double[][] features, int window) {
+        int numFrames = features.length;
+        if (numFrames == 0)
+            return features;
+        double[][] padded = new double[numFrames + 2 * window][];
+        for (int t = 0; t < padded.length; t++) {
+            padded[t] = features[Math.max(0, Math.min(numFrames - 1, t - window))];
+        }
+        double denominator = 0;
+        for (int n = 1; n <= window; n++) {
+            denominator += 2 * n * n;
+        }
+        double[][] deltas = new double[numFrames][NUM_COEFFS];
+        for (int t = 0; t < numFrames; t++) {
+            for (int n = 1; n <= window; n++) {
+                for (int k = 0; k < NUM_COEFFS; k++) {
+                    deltas[t][k] += n * (padded[t + window + n][k] - padded[t + window - n][k]) / denominator;
+                }
+            }
+        }
+        return deltas;
+    }
+
+    @NotNull
+    private float[][] features(int numFrames) {
+        float[][] features = new float[numFrames][NUM_COEFFS];
+        for (int t = 0; t < numFrames; t++) {
+            for (int k = 0; k < NUM_COEFFS; k++) {
+                features[t][k] = (float) random.nextGaussian();
+            }
+        }
+        return features;
+    }
+}
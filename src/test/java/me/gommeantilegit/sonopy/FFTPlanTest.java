@@ -0,0 +1,219 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares {@link FFTPlan} transforms of all kinds of sizes with a naive DFT
+ *
+ * @author GommeAntiLegit
+ */
+public class FFTPlanTest {
+
+    /**
+     * Largest error of an output relative to the largest output magnitude
+     */
+    private static final double TOLERANCE = 1e-5;
+
+    /**
+     * Products of 2, 3 and 5 that are not powers of two, transformed by {@link MixedRadixFFT}
+     */
+    private static final int[] MIXED_RADIX_SIZES = {6, 12, 15, 45, 60, 75, 400, 480, 960, 1000};
+
+    /**
+     * Primes, transformed by {@link BluesteinFFT}
+     */
+    private static final int[] PRIME_SIZES = {7, 13, 97, 101, 401, 997};
+
+    /**
+     * Composite sizes with prime factors above 5, odd ones and even ones whose half size transform is a {@link BluesteinFFT}
+     */
+    private static final int[] OTHER_SIZES = {21, 49, 77, 221, 1023, 14, 26, 398, 1002};
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void transformMatchesDftForSmallSizes() {
+        for (int n = 1; n <= 64; n++) {
+            assertTransform(n);
+        }
+    }
+
+    @Test
+    public void transformMatchesDftForMixedRadixSizes() {
+        for (int n : MIXED_RADIX_SIZES) {
+            assertTransform(n);
+        }
+    }
+
+    @Test
+    public void transformMatchesDftForPrimeSizes() {
+        for (int n : PRIME_SIZES) {
+            assertTransform(n);
+        }
+    }
+
+    @Test
+    public void transformMatchesDftForOtherSizes() {
+        for (int n : OTHER_SIZES) {
+            assertTransform(n);
+        }
+    }
+
+    @Test
+    public void rfftMatchesDftForSmallSizes() {
+        for (int n = 1; n <= 64; n++) {
+            assertRfft(n);
+        }
+    }
+
+    @Test
+    public void rfftMatchesDftForMixedRadixSizes() {
+        for (int n : MIXED_RADIX_SIZES) {
+            assertRfft(n);
+        }
+    }
+
+    @Test
+    public void rfftMatchesDftForPrimeSizes() {
+        for (int n : PRIME_SIZES) {
+            assertRfft(n);
+        }
+    }
+
+    @Test
+    public void rfftMatchesDftForOtherSizes() {
+        for (int n : OTHER_SIZES) {
+            assertRfft(n);
+        }
+    }
+
+    @Test
+    public void radix4MatchesDftForPowersOfTwo() {
+        for (int n = 1; n <= 4096; n <<= 1) {
+            assertTransform(n, FFTPlan.Algorithm.RADIX_4);
+            assertRfft(n, FFTPlan.Algorithm.RADIX_4);
+        }
+    }
+
+    @Test
+    public void algorithmOnlyAppliesToPowersOfTwo() {
+        assertEquals(FFTPlan.Algorithm.RADIX_2, new FFTPlan(512, FFTPlan.Algorithm.RADIX_2).algorithm());
+        assertEquals(FFTPlan.Algorithm.RADIX_4, new FFTPlan(512, FFTPlan.Algorithm.RADIX_4).algorithm());
+        assertEquals(FFTPlan.Algorithm.RADIX_4, new FFTPlan(400, FFTPlan.Algorithm.RADIX_2).algorithm());
+        assertNotSame(TableCache.fftPlan(512, FFTPlan.Algorithm.RADIX_2), TableCache.fftPlan(512, FFTPlan.Algorithm.RADIX_4));
+        assertSame(TableCache.fftPlan(400, FFTPlan.Algorithm.RADIX_2), TableCache.fftPlan(400, FFTPlan.Algorithm.RADIX_4));
+    }
+
+    private void assertTransform(int n) {
+        assertTransform(n, FFTPlan.Algorithm.RADIX_2);
+    }
+
+    private void assertTransform(int n, @NotNull FFTPlan.Algorithm algorithm) {
+        FFTPlan plan = new FFTPlan(n, algorithm);
+        float[] inputReal = noise(n), inputImag = noise(n);
+        double[][] expected = dft(inputReal, inputImag, n);
+
+        float[] real = inputReal.clone(), imag = inputImag.clone();
+        plan.transform(real, imag);
+        assertClose("transform of " + n + " points", expected, real, imag, n);
+
+        real = inputReal.clone();
+        imag = inputImag.clone();
+        plan.transform(real, imag, new float[plan.scratchSize()], new float[plan.scratchSize()]);
+        assertClose("transform of " + n + " points with scratch arrays", expected, real, imag, n);
+    }
+
+    private void assertRfft(int n) {
+        assertRfft(n, FFTPlan.Algorithm.RADIX_2);
+    }
+
+    /**
+     * Checks real transforms of a windowed signal at an offset, zero padded and truncated to n points
+     */
+    private void assertRfft(int n, @NotNull FFTPlan.Algorithm algorithm) {
+        FFTPlan plan = new FFTPlan(n, algorithm);
+        int numOut = n / 2 + 1;
+        for (int length : new int[]{n - n / 7, n, n + 5}) {
+            int offset = 3;
+            float[] signal = noise(offset + length);
+            float[] window = hann(length);
+            double[][] expected = dft(windowed(signal, offset, length, window, n), new float[n], numOut);
+
+            float[] real = new float[numOut], imag = new float[numOut];
+            plan.rfft(signal, offset, length, window, real, imag);
+            assertClose("rfft of " + length + " samples with " + n + " points", expected, real, imag, numOut);
+
+            float[] scratchReal = new float[plan.scratchSize()], scratchImag = new float[plan.scratchSize()];
+            // repeated transforms must not depend on what the previous one left in the scratch arrays
+            for (int i = 0; i < 2; i++) {
+                plan.rfft(signal, offset, length, window, real, imag, scratchReal, scratchImag);
+                assertClose("rfft of " + length + " samples with " + n + " points with scratch arrays", expected, real, imag, numOut);
+            }
+        }
+    }
+
+    /**
+     * @return the first numOut outputs {real, imag} of the DFT of the signal, which is zero padded to real.length points
+     */
+    @NotNull
+    private static double[][] dft(@NotNull float[] real, @NotNull float[] imag, int numOut) {
+        int n = real.length;
+        double[] outReal = new double[numOut], outImag = new double[numOut];
+        for (int k = 0; k < numOut; k++) {
+            for (int j = 0; j < n; j++) {
+                double angle = -2 * Math.PI * ((long) j * k % n) / n;
+                double cos = Math.cos(angle), sin = Math.sin(angle);
+                outReal[k] += real[j] * cos - imag[j] * sin;
+                outImag[k] += real[j] * sin + imag[j] * cos;
+            }
+        }
+        return new double[][]{outReal, outImag};
+    }
+
+    private static void assertClose(@NotNull String message, @NotNull double[][] expected, @NotNull float[] real, @NotNull float[] imag, int numOut) {
+        double error = 0, magnitude = 0;
+        for (int k = 0; k < numOut; k++) {
+            error = Math.max(error, Math.hypot(real[k] - expected[0][k], imag[k] - expected[1][k]));
+            magnitude = Math.max(magnitude, Math.hypot(expected[0][k], expected[1][k]));
+        }
+        assertTrue(message + ": error " + error + " of magnitude " + magnitude, error <= TOLERANCE * Math.max(magnitude, 1));
+    }
+
+    /**
+     * @return signal[offset + n] * window[n] for 0 <= n < length, truncated or zero padded to size points
+     */
+    @NotNull
+    private static float[] windowed(@NotNull float[] signal, int offset, int length, @NotNull float[] window, int size) {
+        float[] x = new float[size];
+        for (int n = 0; n < Math.min(length, size); n++) {
+            x[n] = signal[offset + n] * window[n];
+        }
+        return x;
+    }
+
+    @NotNull
+    private static float[] hann(int length) {
+        float[] window = new float[length];
+        for (int n = 0; n < length; n++) {
+            window[n] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * n / length));
+        }
+        return window;
+    }
+
+    @NotNull
+    private float[] noise(int length) {
+        float[] x = new float[length];
+        for (int i = 0; i < length; i++) {
+            x[i] = (float) random.nextGaussian();
+        }
+        return x;
+    }
+}
@@ -0,0 +1,85 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks the error bounds documented in {@link LogMethod} against {@link LogMethod#EXACT}
+ *
+ * @author GommeAntiLegit
+ */
+public class LogMethodTest {
+
+    private static final int SAMPLE_RATE = 16000, WINDOW_SIZE = 400, WINDOW_HOP = 160, FFT_SIZE = 512;
+
+    @Test
+    public void fastLogIsWithinDocumentedError() {
+        assertLogError(LogMethod.FAST, 8.0e-6);
+    }
+
+    @Test
+    public void fasterLogIsWithinDocumentedError() {
+        assertLogError(LogMethod.FASTER, 8.8e-5);
+    }
+
+    @Test
+    public void fastLogChangesMfccsByLessThan1e5() {
+        assertMfccError(LogMethod.FAST, 1e-5);
+    }
+
+    @Test
+    public void fasterLogChangesMfccsByLessThan1e3() {
+        assertMfccError(LogMethod.FASTER, 1e-3);
+    }
+
+    /**
+     * Compares the array and the single value log of random positive floats of all magnitudes, zero and subnormals
+     */
+    private static void assertLogError(@NotNull LogMethod method, double maxError) {
+        Random random = new Random(42);
+        float[] x = new float[100_003];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = Float.intBitsToFloat(1 + random.nextInt(0x7f7fffff));
+        }
+        x[0] = 0;
+        x[1] = Float.MIN_VALUE;
+        x[2] = Float.MAX_VALUE;
+        float[] logs = x.clone();
+        method.log(logs, 0, logs.length);
+        for (int i = 0; i < x.length; i++) {
+            double exact = Math.log(x[i] > 0 ? x[i] : Math.ulp(1f));
+            assertTrue(method + " log of " + x[i] + ": " + logs[i] + " instead of " + exact, Math.abs(logs[i] - exact) < maxError);
+            assertTrue(method + " log of " + x[i] + ": " + method.log(x[i]) + " instead of " + exact, Math.abs(method.log(x[i]) - exact) < maxError);
+        }
+    }
+
+    /**
+     * Compares the mfccs of noise, a tone and silence with 13 to 40 coefficients
+     */
+    private static void assertMfccError(@NotNull LogMethod method, double maxError) {
+        Random random = new Random(42);
+        float[] audio = new float[SAMPLE_RATE];
+        for (int i = 0; i < audio.length; i++) {
+            float amplitude = i < audio.length / 3 ? 0.5f : i < 2 * audio.length / 3 ? 1e-3f : 0;
+            audio[i] = amplitude * ((float) random.nextGaussian() + (float) Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE));
+        }
+        for (int numFilters : new int[]{26, 40}) {
+            for (int numCoeffs : new int[]{13, numFilters}) {
+                float[][] exact = new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, numFilters).mfccSpec(audio, numCoeffs);
+                float[][] approximate = new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, numFilters)
+                        .setLogMethod(method).mfccSpec(audio, numCoeffs);
+                double error = 0;
+                for (int frame = 0; frame < exact.length; frame++) {
+                    for (int j = 0; j < numCoeffs; j++) {
+                        error = Math.max(error, Math.abs(approximate[frame][j] - exact[frame][j]));
+                    }
+                }
+                assertTrue(method + " changes mfccs of " + numFilters + " filters by " + error, error < maxError);
+            }
+        }
+    }
+}
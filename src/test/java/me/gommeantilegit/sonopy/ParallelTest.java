@@ -0,0 +1,163 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that extraction on a {@link ForkJoinPool} produces output identical to the sequential path
+ *
+ * @author GommeAntiLegit
+ */
+public class ParallelTest {
+
+    private static final int SAMPLE_RATE = 16000, WINDOW_SIZE = 400, WINDOW_HOP = 160, FFT_SIZE = 512, NUM_FILTERS = 40, NUM_COEFFS = 13;
+
+    /**
+     * 3 seconds of audio have 298 frames, enough to be split into several tasks of at least 64 frames
+     */
+    private static final float[] AUDIO = noise(3 * SAMPLE_RATE);
+
+    private static ForkJoinPool pool;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void createPool() {
+        pool = new ForkJoinPool(4);
+    }
+
+    @AfterClass
+    public static void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void mfccSpecMatchesSequential() {
+        for (Sonopy sonopy : configurations()) {
+            int numFrames = sonopy.numFrames(AUDIO.length);
+            assertTrue("too few frames to split into tasks", numFrames >= 2 * 64);
+            float[] sequential = new float[numFrames * NUM_COEFFS], parallel = new float[numFrames * NUM_COEFFS];
+            sonopy.setForkJoinPool(null).mfccSpec(AUDIO, NUM_COEFFS, sequential, 0, NUM_COEFFS);
+            sonopy.setForkJoinPool(pool).mfccSpec(AUDIO, NUM_COEFFS, parallel, 0, NUM_COEFFS);
+            assertArrayEquals(sequential, parallel, 0);
+
+            FloatBuffer buffer = FloatBuffer.allocate(numFrames * NUM_COEFFS);
+            sonopy.mfccSpec(AUDIO, NUM_COEFFS, buffer);
+            assertArrayEquals(sequential, buffer.array(), 0);
+        }
+    }
+
+    @Test
+    public void powerSpecMatchesSequential() {
+        for (Sonopy sonopy : configurations()) {
+            int numFrames = sonopy.numFrames(AUDIO.length);
+            float[] sequential = new float[numFrames * sonopy.numBins()], parallel = new float[numFrames * sonopy.numBins()];
+            sonopy.setForkJoinPool(null).powerSpec(AUDIO, sequential, 0, sonopy.numBins());
+            sonopy.setForkJoinPool(pool).powerSpec(AUDIO, parallel, 0, sonopy.numBins());
+            assertArrayEquals(sequential, parallel, 0);
+        }
+    }
+
+    @Test
+    public void byteBufferMatchesSequential() {
+        ByteBuffer audio = ByteBuffer.allocateDirect(2 * AUDIO.length).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < AUDIO.length; i++) {
+            audio.putShort(2 * i, (short) (AUDIO[i] * 32767));
+        }
+        for (Sonopy sonopy : configurations()) {
+            int numFrames = sonopy.numFrames(AUDIO.length);
+            float[] sequential = new float[numFrames * NUM_COEFFS], parallel = new float[numFrames * NUM_COEFFS];
+            sonopy.setForkJoinPool(null).mfccSpec(audio, AudioEncoding.PCM_16_LE, NUM_COEFFS, sequential, 0, NUM_COEFFS);
+            sonopy.setForkJoinPool(pool).mfccSpec(audio, AudioEncoding.PCM_16_LE, NUM_COEFFS, parallel, 0, NUM_COEFFS);
+            assertArrayEquals(sequential, parallel, 0);
+
+            FloatBuffer buffer = FloatBuffer.allocate(numFrames * NUM_COEFFS);
+            sonopy.mfccSpec(audio, AudioEncoding.PCM_16_LE, NUM_COEFFS, buffer);
+            assertArrayEquals(sequential, buffer.array(), 0);
+        }
+    }
+
+    @Test
+    public void mfccFileMatchesSequential() throws IOException {
+        Path path = writePcm16(AUDIO);
+        for (Sonopy sonopy : configurations()) {
+            float[] sequential = mfccFile(sonopy.setForkJoinPool(null), path);
+            float[] parallel = mfccFile(sonopy.setForkJoinPool(pool), path);
+            assertArrayEquals(sequential, parallel, 0);
+        }
+    }
+
+    /**
+     * @return instances with the default parameters, with a FastDCT, which each worker needs its own copy of,
+     * and with conditioned frames, which read the sample before each frame
+     */
+    @NotNull
+    private static Sonopy[] configurations() {
+        return new Sonopy[]{
+                new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, NUM_FILTERS),
+                new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, NUM_FILTERS).setDctMethod(DCT.Method.FAST),
+                new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, NUM_FILTERS)
+                        .setWindow(WindowFunction.HAMMING, true)
+                        .setPreEmphasis(0.97f)
+                        .setRemoveDcOffset(true)
+        };
+    }
+
+    @NotNull
+    private static float[] mfccFile(@NotNull Sonopy sonopy, @NotNull Path path) throws IOException {
+        float[] mfccs = new float[sonopy.numFrames(AUDIO.length) * NUM_COEFFS];
+        long numFrames = sonopy.mfccFile(path, NUM_COEFFS, (firstFrame, frames) -> {
+            for (int i = 0; i < frames.numFrames(); i++) {
+                System.arraycopy(frames.data(), frames.index(i, 0), mfccs, (int) (firstFrame + i) * NUM_COEFFS, NUM_COEFFS);
+            }
+        });
+        assertEquals(sonopy.numFrames(AUDIO.length), numFrames);
+        return mfccs;
+    }
+
+    /**
+     * @return a mono 16 bit PCM WAV file of audio
+     */
+    @NotNull
+    private Path writePcm16(@NotNull float[] audio) throws IOException {
+        ByteBuffer wav = ByteBuffer.allocate(44 + 2 * audio.length).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes("US-ASCII")).putInt(36 + 2 * audio.length).put("WAVE".getBytes("US-ASCII"));
+        wav.put("fmt ".getBytes("US-ASCII")).putInt(16)
+                .putShort((short) 1).putShort((short) 1).putInt(SAMPLE_RATE).putInt(2 * SAMPLE_RATE).putShort((short) 2).putShort((short) 16);
+        wav.put("data".getBytes("US-ASCII")).putInt(2 * audio.length);
+        for (float sample : audio) {
+            wav.putShort((short) (sample * 32767));
+        }
+        Path path = folder.newFile("audio.wav").toPath();
+        Files.write(path, wav.array());
+        return path;
+    }
+
+    @NotNull
+    private static float[] noise(int length) {
+        Random random = new Random(42);
+        float[] audio = new float[length];
+        for (int i = 0; i < length; i++) {
+            audio[i] = (float) random.nextGaussian() * 0.1f + 0.05f;
+        }
+        return audio;
+    }
+}
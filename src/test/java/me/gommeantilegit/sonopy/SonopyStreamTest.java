@@ -0,0 +1,168 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that a {@link SonopyStream} fed chunks of arbitrary length emits the rows of {@link Sonopy#mfccSpec(float[], int)}
+ *
+ * @author GommeAntiLegit
+ */
+public class SonopyStreamTest {
+
+    private static final int SAMPLE_RATE = 16000, NUM_FILTERS = 26, NUM_COEFFS = 13;
+
+    /**
+     * {audioWindowSize, audioWindowHop, fftSize}: overlapping frames, adjacent frames and frames with gaps between them,
+     * which the stream skips
+     */
+    private static final int[][] WINDOWS = {{400, 160, 512}, {400, 400, 512}, {200, 300, 256}};
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void streamMatchesBatch() {
+        float[] audio = noise(SAMPLE_RATE + 123);
+        for (int[] window : WINDOWS) {
+            Sonopy sonopy = new Sonopy(SAMPLE_RATE, window[0], window[1], window[2], NUM_FILTERS);
+            assertStreamMatchesBatch(sonopy, window[0], audio);
+        }
+    }
+
+    /**
+     * Pre-emphasis reads the sample before each frame, which the stream has to retain across chunks and skipped samples
+     */
+    @Test
+    public void conditionedStreamMatchesBatch() {
+        float[] audio = noise(SAMPLE_RATE + 123);
+        for (int[] window : WINDOWS) {
+            Sonopy sonopy = new Sonopy(SAMPLE_RATE, window[0], window[1], window[2], NUM_FILTERS)
+                    .setPreEmphasis(0.97f)
+                    .setRemoveDcOffset(true);
+            assertStreamMatchesBatch(sonopy, window[0], audio);
+        }
+    }
+
+    @Test
+    public void streamRowsMatchBatch() {
+        float[] audio = noise(SAMPLE_RATE + 123);
+        for (int[] window : WINDOWS) {
+            Sonopy sonopy = new Sonopy(SAMPLE_RATE, window[0], window[1], window[2], NUM_FILTERS);
+            float[][] expected = sonopy.mfccSpec(audio, NUM_COEFFS);
+            SonopyStream stream = sonopy.stream(NUM_COEFFS);
+            int frame = 0;
+            for (int offset = 0; offset < audio.length; ) {
+                int length = Math.min(chunkLength(window[0]), audio.length - offset);
+                float[] chunk = new float[length];
+                System.arraycopy(audio, offset, chunk, 0, length);
+                offset += length;
+                int numFrames = stream.numFrames(length);
+                float[][] rows = stream.process(chunk);
+                assertEquals(numFrames, rows.length);
+                for (float[] row : rows) {
+                    assertArrayEquals("frame " + frame + " of windows " + window[0] + "/" + window[1], expected[frame++], row, 0);
+                }
+            }
+            assertEquals(expected.length, frame);
+            assertEquals(0, stream.flush().length);
+        }
+    }
+
+    /**
+     * Rows held back for their deltas are returned by later chunks and by flush
+     */
+    @Test
+    public void streamRowsWithDeltasMatchBatch() {
+        float[] audio = noise(SAMPLE_RATE + 123);
+        Sonopy sonopy = new Sonopy(SAMPLE_RATE, 400, 160, 512, NUM_FILTERS);
+        Deltas deltas = new Deltas(2, 2);
+        int numFrames = sonopy.numFrames(audio.length), rowLength = deltas.rowLength(NUM_COEFFS);
+        float[] expected = new float[numFrames * rowLength];
+        sonopy.mfccSpec(audio, NUM_COEFFS, deltas, expected, 0, rowLength);
+
+        SonopyStream stream = sonopy.stream(NUM_COEFFS, deltas);
+        float[] actual = new float[numFrames * rowLength];
+        int frame = 0;
+        for (int offset = 0; offset < audio.length; ) {
+            int length = Math.min(chunkLength(400), audio.length - offset);
+            float[] chunk = new float[length];
+            System.arraycopy(audio, offset, chunk, 0, length);
+            offset += length;
+            for (float[] row : stream.process(chunk)) {
+                System.arraycopy(row, 0, actual, frame++ * rowLength, rowLength);
+            }
+        }
+        float[][] pending = stream.flush();
+        assertEquals(deltas.latency(), pending.length);
+        for (float[] row : pending) {
+            System.arraycopy(row, 0, actual, frame++ * rowLength, rowLength);
+        }
+        assertEquals(numFrames, frame);
+        assertArrayEquals(expected, actual, 1e-6f);
+        assertEquals(0, stream.numFramesEmitted());
+    }
+
+    @Test
+    public void resetStartsNewStream() {
+        float[] audio = noise(SAMPLE_RATE / 2);
+        Sonopy sonopy = new Sonopy(SAMPLE_RATE, 400, 160, 512, NUM_FILTERS);
+        SonopyStream stream = sonopy.stream(NUM_COEFFS);
+        stream.process(noise(1234));
+        stream.reset();
+        float[][] rows = stream.process(audio);
+        assertEquals(sonopy.numFrames(audio.length), rows.length);
+        assertArrayEquals(sonopy.mfccSpec(audio, NUM_COEFFS), rows);
+    }
+
+    /**
+     * Feeds audio in random chunks into a stream of sonopy and compares the emitted frames with the batch mfccs
+     */
+    private void assertStreamMatchesBatch(@NotNull Sonopy sonopy, int audioWindowSize, @NotNull float[] audio) {
+        int numFrames = sonopy.numFrames(audio.length);
+        float[] expected = new float[numFrames * NUM_COEFFS];
+        sonopy.mfccSpec(audio, NUM_COEFFS, expected, 0, NUM_COEFFS);
+
+        SonopyStream stream = sonopy.stream(NUM_COEFFS);
+        float[] actual = new float[numFrames * NUM_COEFFS];
+        int frame = 0;
+        for (int offset = 0; offset < audio.length; ) {
+            int length = Math.min(chunkLength(audioWindowSize), audio.length - offset);
+            int expectedFrames = stream.numFrames(length);
+            int emitted = stream.process(audio, offset, length, actual, frame * NUM_COEFFS, NUM_COEFFS);
+            assertEquals(expectedFrames, emitted);
+            frame += emitted;
+            offset += length;
+        }
+        assertEquals(numFrames, frame);
+        assertEquals(numFrames, stream.numFramesEmitted());
+        assertArrayEquals(expected, actual, 0);
+    }
+
+    /**
+     * @return 0, a single sample, less than a frame or several frames
+     */
+    private int chunkLength(int audioWindowSize) {
+        switch (random.nextInt(4)) {
+            case 0:
+                return random.nextInt(2);
+            case 1:
+                return random.nextInt(audioWindowSize);
+            default:
+                return random.nextInt(3 * audioWindowSize);
+        }
+    }
+
+    @NotNull
+    private float[] noise(int length) {
+        float[] audio = new float[length];
+        for (int i = 0; i < length; i++) {
+            audio[i] = (float) random.nextGaussian() * 0.1f + 0.05f;
+        }
+        return audio;
+    }
+}
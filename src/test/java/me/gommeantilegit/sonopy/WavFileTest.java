@@ -0,0 +1,263 @@
+package me.gommeantilegit.sonopy;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parses generated WAV files and checks their features against {@link Sonopy#mfccSpec(float[], int)} of their samples
+ *
+ * @author GommeAntiLegit
+ */
+public class WavFileTest {
+
+    private static final int SAMPLE_RATE = 16000, WINDOW_SIZE = 400, WINDOW_HOP = 160, FFT_SIZE = 512, NUM_FILTERS = 26, NUM_COEFFS = 13;
+
+    private static final int WAVE_FORMAT_PCM = 1, WAVE_FORMAT_IEEE_FLOAT = 3;
+
+    /**
+     * Sample formats supported by {@link WavFile} as {format tag, bits per sample}
+     */
+    private static final int[][] FORMATS = {{WAVE_FORMAT_PCM, 16}, {WAVE_FORMAT_PCM, 32}, {WAVE_FORMAT_IEEE_FLOAT, 32}};
+
+    private static final AudioEncoding[] ENCODINGS = {AudioEncoding.PCM_16_LE, AudioEncoding.PCM_32_LE, AudioEncoding.FLOAT_32_LE};
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(42);
+
+    /**
+     * Blocks after the first map the sample before their first frame, which the pre-emphasis filter reads
+     */
+    @Test
+    public void mfccFileMatchesBatchAcrossMappedBlocks() throws IOException {
+        short[] samples = pcm16Noise(SAMPLE_RATE);
+        float[] audio = decode(samples);
+        Path path = writePcm16(samples);
+        Sonopy sonopy = new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, NUM_FILTERS)
+                .setPreEmphasis(0.97f)
+                .setRemoveDcOffset(true);
+        float[][] expected = sonopy.mfccSpec(audio, NUM_COEFFS);
+        // a frame per block, blocks of 3 frames and blocks that do not end on a frame boundary
+        for (long blockBytes : new long[]{1, 3 * 2 * WINDOW_HOP, 7 * 2 * WINDOW_HOP + 5}) {
+            float[][] actual = new float[expected.length][];
+            int[] numBlocks = new int[1];
+            long numFrames;
+            try (WavFile wav = WavFile.open(path)) {
+                numFrames = sonopy.mfccFile(wav, NUM_COEFFS, (firstFrame, frames) -> {
+                    numBlocks[0]++;
+                    float[][] rows = frames.toArray();
+                    System.arraycopy(rows, 0, actual, (int) firstFrame, rows.length);
+                }, blockBytes);
+            }
+            assertEquals(expected.length, numFrames);
+            assertTrue("blocks of " + blockBytes + " bytes", numBlocks[0] > 1);
+            assertArrayEquals("blocks of " + blockBytes + " bytes", expected, actual);
+        }
+    }
+
+    /**
+     * Every supported format in a plain and in a WAVE_FORMAT_EXTENSIBLE fmt chunk holds the same samples
+     */
+    @Test
+    public void parsesSampleFormats() throws IOException {
+        short[] samples = pcm16Noise(SAMPLE_RATE / 4);
+        Sonopy sonopy = new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, NUM_FILTERS);
+        float[][] expected = sonopy.mfccSpec(decode(samples), NUM_COEFFS);
+        for (int i = 0; i < FORMATS.length; i++) {
+            int formatTag = FORMATS[i][0], bitsPerSample = FORMATS[i][1];
+            byte[] data = encode(ENCODINGS[i], samples);
+            for (boolean extensible : new boolean[]{false, true}) {
+                byte[] fmt = extensible ? extensibleFmt(formatTag, bitsPerSample) : fmt(formatTag, 1, bitsPerSample);
+                Path path = write(chunk("fmt ", fmt.length, fmt), chunk("data", data.length, data));
+                String format = ENCODINGS[i] + (extensible ? " extensible" : "");
+                try (WavFile wav = WavFile.open(path)) {
+                    assertEquals(format, SAMPLE_RATE, wav.sampleRate());
+                    assertEquals(format, ENCODINGS[i], wav.encoding());
+                    assertEquals(format, samples.length, wav.numSamples());
+                }
+                assertArrayEquals(format, expected, mfccFile(sonopy, path, expected.length));
+            }
+        }
+    }
+
+    /**
+     * Chunks of odd size are followed by a pad byte that is not included in their size
+     */
+    @Test
+    public void skipsPaddedChunks() throws IOException {
+        short[] samples = pcm16Noise(SAMPLE_RATE / 4);
+        byte[] fmt = fmt(WAVE_FORMAT_PCM, 1, 16), list = {1, 2, 3, 4, 5}, data = encode(AudioEncoding.PCM_16_LE, samples);
+        Path path = write(chunk("LIST", list.length, list), chunk("fmt ", fmt.length, fmt), chunk("junk", list.length, list),
+                chunk("data", data.length, data));
+        Sonopy sonopy = new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, NUM_FILTERS);
+        float[][] expected = sonopy.mfccSpec(decode(samples), NUM_COEFFS);
+        try (WavFile wav = WavFile.open(path)) {
+            assertEquals(samples.length, wav.numSamples());
+        }
+        assertArrayEquals(expected, mfccFile(sonopy, path, expected.length));
+    }
+
+    /**
+     * Streaming writers leave the data size at 0xFFFFFFFF, the samples then extend to the end of the file
+     */
+    @Test
+    public void unsetDataSizeExtendsToEndOfFile() throws IOException {
+        short[] samples = pcm16Noise(SAMPLE_RATE / 4);
+        byte[] fmt = fmt(WAVE_FORMAT_PCM, 1, 16), data = encode(AudioEncoding.PCM_16_LE, samples);
+        Path path = write(chunk("fmt ", fmt.length, fmt), chunk("data", 0xFFFFFFFFL, data));
+        Sonopy sonopy = new Sonopy(SAMPLE_RATE, WINDOW_SIZE, WINDOW_HOP, FFT_SIZE, NUM_FILTERS);
+        float[][] expected = sonopy.mfccSpec(decode(samples), NUM_COEFFS);
+        try (WavFile wav = WavFile.open(path)) {
+            assertEquals(samples.length, wav.numSamples());
+        }
+        assertArrayEquals(expected, mfccFile(sonopy, path, expected.length));
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsStereo() throws IOException {
+        byte[] fmt = fmt(WAVE_FORMAT_PCM, 2, 16), data = new byte[4 * 100];
+        WavFile.open(write(chunk("fmt ", fmt.length, fmt), chunk("data", data.length, data))).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejects24BitSamples() throws IOException {
+        byte[] fmt = fmt(WAVE_FORMAT_PCM, 1, 24), data = new byte[3 * 100];
+        WavFile.open(write(chunk("fmt ", fmt.length, fmt), chunk("data", data.length, data))).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsExtensible24BitSamples() throws IOException {
+        byte[] fmt = extensibleFmt(WAVE_FORMAT_PCM, 24), data = new byte[3 * 100];
+        WavFile.open(write(chunk("fmt ", fmt.length, fmt), chunk("data", data.length, data))).close();
+    }
+
+    /**
+     * @return the mfccs of the WAV file at path, which must have numFrames frames
+     */
+    @NotNull
+    private static float[][] mfccFile(@NotNull Sonopy sonopy, @NotNull Path path, int numFrames) throws IOException {
+        float[][] mfccs = new float[numFrames][];
+        long actualFrames = sonopy.mfccFile(path, NUM_COEFFS, (firstFrame, frames) -> {
+            float[][] rows = frames.toArray();
+            System.arraycopy(rows, 0, mfccs, (int) firstFrame, rows.length);
+        });
+        assertEquals(numFrames, actualFrames);
+        return mfccs;
+    }
+
+    @NotNull
+    private static float[] decode(@NotNull short[] samples) {
+        float[] audio = new float[samples.length];
+        for (int i = 0; i < samples.length; i++) {
+            audio[i] = samples[i] / 32768f;
+        }
+        return audio;
+    }
+
+    /**
+     * @return the samples in encoding, which represents each of them exactly
+     */
+    @NotNull
+    private static byte[] encode(@NotNull AudioEncoding encoding, @NotNull short[] samples) {
+        ByteBuffer data = ByteBuffer.allocate(encoding.bytesPerSample() * samples.length).order(ByteOrder.LITTLE_ENDIAN);
+        for (short sample : samples) {
+            switch (encoding) {
+                case PCM_16_LE:
+                    data.putShort(sample);
+                    break;
+                case PCM_32_LE:
+                    data.putInt(sample << 16);
+                    break;
+                default:
+                    data.putFloat(sample / 32768f);
+            }
+        }
+        return data.array();
+    }
+
+    /**
+     * @return a WAVEFORMAT fmt chunk
+     */
+    @NotNull
+    private static byte[] fmt(int formatTag, int numChannels, int bitsPerSample) {
+        int blockAlign = numChannels * bitsPerSample / 8;
+        return ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN)
+                .putShort((short) formatTag).putShort((short) numChannels).putInt(SAMPLE_RATE).putInt(SAMPLE_RATE * blockAlign)
+                .putShort((short) blockAlign).putShort((short) bitsPerSample)
+                .array();
+    }
+
+    /**
+     * @return a mono WAVEFORMATEXTENSIBLE fmt chunk whose sub format guid starts with formatTag
+     */
+    @NotNull
+    private static byte[] extensibleFmt(int formatTag, int bitsPerSample) {
+        return ByteBuffer.allocate(40).order(ByteOrder.LITTLE_ENDIAN)
+                .put(fmt(0xFFFE, 1, bitsPerSample))
+                .putShort((short) 22).putShort((short) bitsPerSample).putInt(0x4)
+                .putShort((short) formatTag).put(new byte[]{0, 0, 0, 0, 0x10, 0, (byte) 0x80, 0, 0, (byte) 0xAA, 0, 0x38, (byte) 0x9B, 0x71})
+                .array();
+    }
+
+    /**
+     * @param size value of the size field, which may differ from the length of the payload
+     * @return the chunk followed by a pad byte if its payload has an odd length
+     */
+    @NotNull
+    private static byte[] chunk(@NotNull String id, long size, @NotNull byte[] payload) throws IOException {
+        return ByteBuffer.allocate(8 + payload.length + (payload.length & 1)).order(ByteOrder.LITTLE_ENDIAN)
+                .put(id.getBytes("US-ASCII")).putInt((int) size).put(payload)
+                .array();
+    }
+
+    /**
+     * @return a RIFF WAVE file of the chunks
+     */
+    @NotNull
+    private Path write(@NotNull byte[]... chunks) throws IOException {
+        int size = 4;
+        for (byte[] chunk : chunks) {
+            size += chunk.length;
+        }
+        ByteBuffer wav = ByteBuffer.allocate(8 + size).order(ByteOrder.LITTLE_ENDIAN);
+        wav.put("RIFF".getBytes("US-ASCII")).putInt(size).put("WAVE".getBytes("US-ASCII"));
+        for (byte[] chunk : chunks) {
+            wav.put(chunk);
+        }
+        Path path = folder.newFile().toPath();
+        Files.write(path, wav.array());
+        return path;
+    }
+
+    @NotNull
+    private short[] pcm16Noise(int length) {
+        short[] samples = new short[length];
+        for (int i = 0; i < length; i++) {
+            samples[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, random.nextGaussian() * 3000 + 1000));
+        }
+        return samples;
+    }
+
+    /**
+     * @return a mono 16 bit PCM WAV file of samples
+     */
+    @NotNull
+    private Path writePcm16(@NotNull short[] samples) throws IOException {
+        byte[] fmt = fmt(WAVE_FORMAT_PCM, 1, 16), data = encode(AudioEncoding.PCM_16_LE, samples);
+        return write(chunk("fmt ", fmt.length, fmt), chunk("data", data.length, data));
+    }
+}